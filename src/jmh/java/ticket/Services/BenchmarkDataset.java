@@ -0,0 +1,72 @@
+package ticket.Services;
+
+import util.DatasetGenerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+
+/**
+ * Synthetic localDb directories for the benchmarks, written by {@link DatasetGenerator}.
+ *
+ * Each (trains, users) size is generated once under build/jmh-data and copied to a fresh temp
+ * directory per fork, so benchmarks that book or log in never see each other's state. Every train
+ * has eight stops and every user one ticket in the next TICKET_DAYS days. When the users' tickets
+ * would not fit the trains' seats over those days, more trains are generated than asked for.
+ */
+final class BenchmarkDataset {
+    static final String PASSWORD = DatasetGenerator.PASSWORD;
+    // Generated tickets travel in the next TICKET_DAYS days; later dates start out empty
+    static final int TICKET_DAYS = 30;
+
+    private static final long SEED = 42;
+    private static final File CACHE_DIR = new File("build/jmh-data");
+
+    private BenchmarkDataset() {}
+
+    static DatasetGenerator generator(int trains, int users) {
+        return new DatasetGenerator(SEED)
+                .trains(trains)
+                .stops(8, 8)
+                .stopSpacing(15, 15)
+                .users(users)
+                .ticketDates(LocalDate.now().plusDays(1), TICKET_DAYS);
+    }
+
+    // Points the app at a private copy of the dataset; call before touching any service
+    static File install(int trains, int users) throws IOException {
+        // Enough trains that no two tickets share a seat on the same date
+        long ticketsPerTrain = generator(1, 0).ticketCapacity();
+        int generatedTrains = (int) Math.max(trains, (users + ticketsPerTrain - 1) / ticketsPerTrain);
+        System.setProperty("log.level", "WARNING");
+        System.setProperty("login.maxAttemptsPerMinute", String.valueOf(Integer.MAX_VALUE));
+        File source = new File(CACHE_DIR, "trains-" + generatedTrains + "-users-" + users + "-" + LocalDate.now());
+        if (!new File(source, "users.json").exists()) {
+            generator(generatedTrains, users).write(source);
+        }
+
+        Path target = Files.createTempDirectory("jmh-localDb");
+        for (String name : new String[] {"trains.json", "users.json"}) {
+            Files.copy(new File(source, name).toPath(), target.resolve(name), StandardCopyOption.REPLACE_EXISTING);
+        }
+        System.setProperty("db.dir", target.toString());
+        return target.toFile();
+    }
+
+    // Two stations train T000000 stops at, so every dataset has a search with results
+    static String[] searchRoute() {
+        int[] route = generator(1, 0).route(0);
+        return new String[] {DatasetGenerator.stationName(route[2]), DatasetGenerator.stationName(route[5])};
+    }
+
+    static String userName(int index) {
+        return DatasetGenerator.userName(index);
+    }
+
+    static String trainId(int index) {
+        return DatasetGenerator.trainId(index);
+    }
+}
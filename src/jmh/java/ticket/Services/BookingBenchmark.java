@@ -0,0 +1,81 @@
+package ticket.Services;
+
+import org.openjdk.jmh.annotations.*;
+import ticket.entities.SeatMap;
+import ticket.entities.Ticket;
+import ticket.entities.Train;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Booking and cancelling one seat, journal commit included.
+ *
+ * Bookings walk through every seat of every train on the dates the dataset left empty, so no
+ * invocation finds its seat taken. Each cancellation undoes a booking made just before it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BookingBenchmark {
+    @Param({"10", "10000", "100000"})
+    public int trains;
+
+    private UserBookingService userBookingService;
+    private TrainService trainService;
+    private String userId;
+    private long next;
+
+    @State(Scope.Benchmark)
+    public static class BookedTicket {
+        String ticketId;
+
+        @Setup(Level.Invocation)
+        public void book(BookingBenchmark benchmark) throws IOException {
+            benchmark.bookNext();
+            List<Ticket> tickets = TicketStore.getInstance().findByUser(benchmark.userId);
+            ticketId = tickets.get(tickets.size() - 1).getTicketId();
+        }
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        BenchmarkDataset.install(trains, 1000);
+        trainService = new TrainService();
+        userBookingService = new UserBookingService();
+        String userName = BenchmarkDataset.userName(0);
+        if (!userBookingService.login(userName, BenchmarkDataset.PASSWORD).join()) {
+            throw new IllegalStateException("Benchmark user could not log in");
+        }
+        userId = UserRepository.getInstance().findByName(userName).getUserId();
+    }
+
+    @Benchmark
+    public Boolean bookTrainSeat() {
+        return bookNext();
+    }
+
+    @Benchmark
+    public Boolean cancelBooking(BookedTicket booked) {
+        return userBookingService.cancelBooking(booked.ticketId);
+    }
+
+    Boolean bookNext() {
+        long slot = next++;
+        Train train = trainService.findTrain(BenchmarkDataset.trainId((int) (slot % trains)));
+        SeatMap layout = train.getSeats();
+        int seatCount = layout.getRows() * layout.getColumns();
+        int seat = (int) (slot / trains % seatCount);
+        int emptyDays = SeatInventory.ADVANCE_BOOKING_DAYS - BenchmarkDataset.TICKET_DAYS;
+        LocalDate travelDate = LocalDate.now().plusDays(
+                1 + BenchmarkDataset.TICKET_DAYS + slot / trains / seatCount % emptyDays);
+        List<String> stations = train.getStations();
+        return userBookingService.bookTrainSeat(train, stations.get(0), stations.get(stations.size() - 1),
+                travelDate, layout.rowOf(seat), layout.columnOf(seat));
+    }
+}
@@ -0,0 +1,36 @@
+package ticket.Services;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Login (user lookup, bcrypt check on the credential pool, new session) against user counts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoginBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    public int users;
+
+    private UserBookingService userBookingService;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        BenchmarkDataset.install(10, users);
+        userBookingService = new UserBookingService();
+    }
+
+    @Benchmark
+    public Boolean login() {
+        String userName = BenchmarkDataset.userName(next);
+        next = (next + 1) % users;
+        return userBookingService.login(userName, BenchmarkDataset.PASSWORD).join();
+    }
+}
@@ -0,0 +1,50 @@
+package ticket.Services;
+
+import org.openjdk.jmh.annotations.*;
+import ticket.entities.SeatMap;
+import ticket.entities.Train;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Route search and seat map lookup as the network grows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchBenchmark {
+    @Param({"10", "10000", "100000"})
+    public int trains;
+
+    private TrainService trainService;
+    private UserBookingService userBookingService;
+    private Train train;
+    private String[] route;
+    private LocalDate travelDate;
+
+    @Setup
+    public void setUp() throws IOException {
+        BenchmarkDataset.install(trains, 1000);
+        trainService = new TrainService();
+        userBookingService = new UserBookingService();
+        train = trainService.findTrain(BenchmarkDataset.trainId(0));
+        travelDate = LocalDate.now().plusDays(1);
+        route = BenchmarkDataset.searchRoute();
+    }
+
+    @Benchmark
+    public List<Train> searchTrains() {
+        return trainService.searchTrains(route[0], route[1]);
+    }
+
+    @Benchmark
+    public SeatMap fetchSeats() {
+        return userBookingService.fetchSeats(train, travelDate);
+    }
+}
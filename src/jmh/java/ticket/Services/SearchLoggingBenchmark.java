@@ -0,0 +1,58 @@
+package ticket.Services;
+
+import org.openjdk.jmh.annotations.*;
+import ticket.entities.Train;
+import util.Logging;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Search cost with every trace line written synchronously (what the old println calls did)
+ * against the default INFO level with the async handler, on a generated network.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchLoggingBenchmark {
+    @Param({"FINE_SYNC", "INFO_ASYNC"})
+    public String logging;
+
+    @Param({"10000"})
+    public int trains;
+
+    private TrainService trainService;
+    private PrintStream originalOut;
+    private String[] route;
+
+    @Setup
+    public void setUp() throws Exception {
+        BenchmarkDataset.install(trains, 1000);
+        // Measure formatting and hand-off, not the terminal
+        originalOut = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        if ("FINE_SYNC".equals(logging)) {
+            Logging.configure(Level.FINE, false);
+        } else {
+            Logging.configure(Level.INFO, true);
+        }
+        trainService = new TrainService();
+        route = BenchmarkDataset.searchRoute();
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.setOut(originalOut);
+    }
+
+    @Benchmark
+    public List<Train> search() {
+        return trainService.searchTrains(route[0], route[1]);
+    }
+}
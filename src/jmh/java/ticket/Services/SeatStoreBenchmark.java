@@ -0,0 +1,66 @@
+package ticket.Services;
+
+import org.openjdk.jmh.annotations.*;
+import ticket.entities.ReservationResult;
+import ticket.entities.SeatMap;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Claim and release of one seat on a heap SeatMap against one backed by a slot of the mapped
+ * SeatStoreFile, which is all a booking writes to the seat inventory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SeatStoreBenchmark {
+    private static final int ROWS = 10;
+    private static final int COLUMNS = 6;
+
+    @Param({"HEAP", "MAPPED"})
+    public String store;
+
+    private File directory;
+    private SeatStoreFile seatStore;
+    private SeatMap seats;
+    private int seat;
+
+    @Setup
+    public void setUp() throws Exception {
+        if ("MAPPED".equals(store)) {
+            directory = Files.createTempDirectory("seat-store").toFile();
+            seatStore = SeatStoreFile.open(directory, SeatInventory.ADVANCE_BOOKING_DAYS + 2);
+            SeatStoreFile.Slot slot = seatStore.slot("BENCH", ROWS * COLUMNS, LocalDate.now());
+            slot.reset();
+            seats = new SeatMap(ROWS, COLUMNS, slot);
+        } else {
+            seats = new SeatMap(ROWS, COLUMNS);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        if (seatStore != null) {
+            seatStore.close();
+            for (File file : directory.listFiles()) {
+                file.delete();
+            }
+            directory.delete();
+        }
+    }
+
+    @Benchmark
+    public ReservationResult claimAndRelease() {
+        seat = (seat + 1) % (ROWS * COLUMNS);
+        int row = seat / COLUMNS;
+        int column = seat % COLUMNS;
+        seats.claim(row, column, seats.fullRoute());
+        return seats.release(row, column, seats.fullRoute());
+    }
+}
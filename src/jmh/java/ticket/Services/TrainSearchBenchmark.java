@@ -0,0 +1,64 @@
+package ticket.Services;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import ticket.entities.Train;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Search latency with the shared TrainRepository against the old behaviour of
+ * re-parsing trains.json on every call, on a generated network of each size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TrainSearchBenchmark {
+    @Param({"10", "10000", "100000"})
+    public int trains;
+
+    private TrainService trainService;
+    private ObjectMapper objectMapper;
+    private File trainsFile;
+    private String[] route;
+
+    @Setup
+    public void setUp() throws IOException {
+        BenchmarkDataset.install(trains, 1000);
+        trainService = new TrainService();
+        route = BenchmarkDataset.searchRoute();
+        objectMapper = new ObjectMapper();
+        objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        trainsFile = new File(TrainRepository.TRAIN_DB_PATH);
+    }
+
+    // What every search cost before: read and deserialize the whole file, then filter
+    @Benchmark
+    public List<Train> searchReparsingFile() throws IOException {
+        List<Train> parsed = objectMapper.readValue(trainsFile, new TypeReference<List<Train>>() {});
+        return parsed.stream()
+                .filter(train -> {
+                    List<String> stations = train.getStations().stream()
+                            .map(String::toLowerCase)
+                            .collect(Collectors.toList());
+                    int sourceIndex = stations.indexOf(route[0].toLowerCase());
+                    int destinationIndex = stations.indexOf(route[1].toLowerCase());
+                    return sourceIndex != -1 && destinationIndex != -1 && sourceIndex < destinationIndex;
+                })
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<Train> searchSharedRepository() {
+        return trainService.searchTrains(route[0], route[1]);
+    }
+}
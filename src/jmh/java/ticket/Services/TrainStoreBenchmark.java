@@ -0,0 +1,76 @@
+package ticket.Services;
+
+import org.openjdk.jmh.annotations.*;
+import ticket.entities.Train;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cold load and full save of trains.json, and reading the same trains back from a binary snapshot.
+ *
+ * load and save always measure the JSON path: db.snapshot is pinned to json and the snapshot read
+ * by readSnapshot lives under a name the repository never looks at. trains.json is restored before
+ * every iteration, so a save never changes what the next load reads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TrainStoreBenchmark {
+    @Param({"10", "10000", "100000"})
+    public int trains;
+
+    private TrainRepository trainRepository;
+    private File snapshot;
+    private File jsonFile;
+    private File pristineJson;
+
+    @Setup
+    public void setUp() throws IOException {
+        System.setProperty("db.snapshot", "json");
+        File directory = BenchmarkDataset.install(trains, 1000);
+        if (BinarySnapshot.ENABLED) {
+            throw new IllegalStateException("TrainStoreBenchmark needs db.snapshot=json");
+        }
+        jsonFile = new File(directory, "trains.json");
+        pristineJson = new File(directory, "trains.json.pristine");
+        Files.copy(jsonFile.toPath(), pristineJson.toPath());
+        trainRepository = TrainRepository.getInstance();
+        snapshot = new File(directory, "trains-benchmark.bin");
+        BinarySnapshot.writeTrains(snapshot, trainRepository.getTrains());
+    }
+
+    // Undo the previous iteration's save, so load and save always see the generated file
+    @Setup(Level.Iteration)
+    public void restoreJson() throws IOException {
+        Files.copy(pristineJson.toPath(), jsonFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        trainRepository.load();
+    }
+
+    @Benchmark
+    public TrainRepository load() throws IOException {
+        trainRepository.load();
+        return trainRepository;
+    }
+
+    @Benchmark
+    public TrainRepository save() throws IOException {
+        trainRepository.save();
+        return trainRepository;
+    }
+
+    @Benchmark
+    public List<Train> readSnapshot() throws IOException {
+        List<Train> loaded = new ArrayList<>();
+        BinarySnapshot.readTrains(snapshot, loaded::add);
+        return loaded;
+    }
+}
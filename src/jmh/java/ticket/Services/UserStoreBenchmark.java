@@ -0,0 +1,76 @@
+package ticket.Services;
+
+import org.openjdk.jmh.annotations.*;
+import ticket.entities.User;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cold load and full save of users.json, and reading the same users back from a binary snapshot.
+ *
+ * load and save always measure the JSON path: db.snapshot is pinned to json and the snapshot read
+ * by readSnapshot lives under a name the repository never looks at. users.json is restored before
+ * every iteration, so a save never changes what the next load reads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class UserStoreBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    public int users;
+
+    private UserRepository userRepository;
+    private File snapshot;
+    private File jsonFile;
+    private File pristineJson;
+
+    @Setup
+    public void setUp() throws IOException {
+        System.setProperty("db.snapshot", "json");
+        File directory = BenchmarkDataset.install(10, users);
+        if (BinarySnapshot.ENABLED) {
+            throw new IllegalStateException("UserStoreBenchmark needs db.snapshot=json");
+        }
+        jsonFile = new File(directory, "users.json");
+        pristineJson = new File(directory, "users.json.pristine");
+        Files.copy(jsonFile.toPath(), pristineJson.toPath());
+        userRepository = UserRepository.getInstance();
+        snapshot = new File(directory, "users-benchmark.bin");
+        BinarySnapshot.writeUsers(snapshot, userRepository.getUsers());
+    }
+
+    // Undo the previous iteration's save, so load and save always see the generated file
+    @Setup(Level.Iteration)
+    public void restoreJson() throws IOException {
+        Files.copy(pristineJson.toPath(), jsonFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        userRepository.load();
+    }
+
+    @Benchmark
+    public UserRepository load() throws IOException {
+        userRepository.load();
+        return userRepository;
+    }
+
+    @Benchmark
+    public UserRepository save() throws IOException {
+        userRepository.save();
+        return userRepository;
+    }
+
+    @Benchmark
+    public List<User> readSnapshot() throws IOException {
+        List<User> loaded = new ArrayList<>();
+        BinarySnapshot.readUsers(snapshot, loaded::add);
+        return loaded;
+    }
+}
@@ -0,0 +1,64 @@
+package ticket.entities;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hundreds of threads racing to claim and release seats on one SeatMap.
+ *
+ * A seat that is claimed is released again, so the map stays contended instead of filling up
+ * in the first microseconds and leaving only the ALREADY_TAKEN path to measure. Successful claims
+ * and releases are counted; after each iteration their difference must equal the number of
+ * booked seats, otherwise two threads were handed the same seat and the run fails. The
+ * end-to-end check through UserBookingService is ConcurrentBookingTest.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(256)
+@Fork(1)
+public class SeatReservationStressBenchmark {
+    private static final int ROWS = 24;
+    private static final int COLUMNS = 72;
+
+    private SeatMap seatMap;
+    private AtomicInteger claims;
+    private AtomicInteger releases;
+
+    @Setup(Level.Iteration)
+    public void newTrain() {
+        seatMap = new SeatMap(ROWS, COLUMNS);
+        claims = new AtomicInteger();
+        releases = new AtomicInteger();
+    }
+
+    @Benchmark
+    public ReservationResult claimAndReleaseRandomSeat() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int row = random.nextInt(ROWS);
+        int column = random.nextInt(COLUMNS);
+        ReservationResult result = seatMap.claim(row, column);
+        if (result == ReservationResult.CLAIMED) {
+            claims.incrementAndGet();
+            if (seatMap.release(row, column) == ReservationResult.RELEASED) {
+                releases.incrementAndGet();
+            }
+        }
+        return result;
+    }
+
+    @TearDown(Level.Iteration)
+    public void verifyNoDoubleBooking() {
+        int booked = seatMap.bookedSeats();
+        int held = claims.get() - releases.get();
+        if (booked != held) {
+            throw new IllegalStateException("Double booking: " + claims.get() + " claims and "
+                    + releases.get() + " releases for " + booked + " booked seats");
+        }
+    }
+}
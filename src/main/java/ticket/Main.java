@@ -1,21 +1,34 @@
 package ticket;
 
+import ticket.Services.SeatAllocator;
 import ticket.Services.TrainService;
 import ticket.Services.UserBookingService;
+import ticket.entities.Itinerary;
+import ticket.entities.SeatMap;
+import ticket.entities.Ticket;
 import ticket.entities.Train;
-import ticket.entities.User;
-import util.UserServiceUtil;
+import util.Logging;
 
 import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.concurrent.CompletionException;
+import java.util.logging.Level;
 
 public class Main {
     public static void main(String[] args) {
+        // Write log lines synchronously so they appear in order with the prompts
+        Logging.configure(Level.parse(System.getProperty("log.level", "INFO")), false);
         System.out.println("Running Train Booking System");
         Scanner sc = new Scanner(System.in);
         int option = 0;
         UserBookingService userBookingService;
         Train trainSelectedForBooking = null;
+        String sourceSelectedForBooking = null;
+        String destinationSelectedForBooking = null;
+        LocalDate dateSelectedForBooking = null;
 
         try {
             userBookingService = new UserBookingService();
@@ -50,10 +63,14 @@ public class Main {
                     String nameToSignUp = sc.next();
                     System.out.print("Enter the password to signup: ");
                     String passwordToSignUp = sc.next();
-                    User userToSignUp = new User(nameToSignUp, passwordToSignUp,
-                            UserServiceUtil.hashPassword(passwordToSignUp),
-                            new ArrayList<>(), UUID.randomUUID().toString());
-                    boolean signupResult = userBookingService.signUp(userToSignUp);
+                    boolean signupResult;
+                    try {
+                        // The password is hashed on the credential pool, not on this thread
+                        signupResult = userBookingService.signUp(nameToSignUp, passwordToSignUp).join();
+                    } catch (CompletionException e) {
+                        System.out.println("❌ " + e.getCause().getMessage());
+                        signupResult = false;
+                    }
                     if (signupResult) {
                         System.out.println("✅ Sign up successful!");
                     } else {
@@ -67,37 +84,39 @@ public class Main {
                     System.out.print("Enter the password to login: ");
                     String passwordToLogin = sc.next();
 
-                    // Create a temporary user for login (UUID doesn't matter for login)
-                    User userLogin = new User(nameLogin, passwordToLogin,
-                            UserServiceUtil.hashPassword(passwordToLogin), // This will be ignored during login
-                            new ArrayList<>(),
-                            "temp-id"); // Temporary ID, will be replaced during login
-
+                    // Same service throughout; a failed login leaves nobody logged in
+                    userBookingService.logout();
+                    boolean loggedIn;
                     try {
-                        userBookingService = new UserBookingService(userLogin);
-                        if (userBookingService.loginUser()) {
-                            System.out.println("✅ Login successful!");
-                        } else {
-                            System.out.println("❌ Login failed! Please check your credentials.");
-                            userBookingService = new UserBookingService(); // Reset to non-logged-in service
-                        }
-                    } catch(IOException ex) {
-                        System.out.println("❌ Login failed: " + ex.getMessage());
-                        try {
-                            userBookingService = new UserBookingService(); // Reset to non-logged-in service
-                        } catch (IOException e) {
-                            System.out.println("❌ System error: " + e.getMessage());
-                            return;
-                        }
+                        loggedIn = userBookingService.login(nameLogin, passwordToLogin).join();
+                    } catch (CompletionException e) {
+                        System.out.println("❌ " + e.getCause().getMessage());
+                        loggedIn = false;
+                    }
+                    if (loggedIn) {
+                        System.out.println("✅ Login successful!");
+                    } else {
+                        System.out.println("❌ Login failed! Please check your credentials.");
                     }
                     break;
 
                 case 3:
-                    System.out.println("Fetching your bookings...");
-                    if (userBookingService != null) {
-                        userBookingService.fetchBookings();
-                    } else {
+                    if (!userBookingService.isUserLoggedIn()) {
                         System.out.println("❌ Please login first!");
+                        break;
+                    }
+                    List<Ticket> bookings = userBookingService.fetchBookings();
+                    System.out.println("\n=== Bookings for " + userBookingService.getCurrentUsername() + " ===");
+                    if (bookings.isEmpty()) {
+                        System.out.println("No tickets booked yet.");
+                    }
+                    for (int i = 0; i < bookings.size(); i++) {
+                        Ticket ticket = bookings.get(i);
+                        System.out.println((i + 1) + ". " + ticket.getTicketInfo());
+                        String departs = userBookingService.departureTime(ticket);
+                        if (departs != null) {
+                            System.out.println("   Departs " + ticket.getSource() + " at " + departs);
+                        }
                     }
                     break;
 
@@ -106,12 +125,49 @@ public class Main {
                     String source = sc.next();
                     System.out.print("Type your destination station: ");
                     String destination = sc.next();
+                    System.out.print("Type your travel date (yyyy-MM-dd): ");
+                    LocalDate travelDate;
+                    try {
+                        travelDate = LocalDate.parse(sc.next());
+                    } catch (DateTimeParseException e) {
+                        System.out.println("❌ Invalid date. Please use the format yyyy-MM-dd.");
+                        break;
+                    }
+                    if (!userBookingService.isBookable(travelDate)) {
+                        System.out.println("❌ " + travelDate + " can't be booked. Bookings are open from today to "
+                                + userBookingService.lastBookableDate() + ".");
+                        break;
+                    }
 
-                    List<Train> trains = userBookingService.getTrains(source, destination);
+                    System.out.print("Depart after (HH:mm, or 'any'): ");
+                    String departAfterInput = sc.next();
+                    LocalTime departAfter = null;
+                    if (!departAfterInput.equalsIgnoreCase("any")) {
+                        try {
+                            departAfter = LocalTime.parse(departAfterInput);
+                        } catch (DateTimeParseException e) {
+                            System.out.println("❌ Invalid time. Please use the format HH:mm.");
+                            break;
+                        }
+                    }
+
+                    // Earliest departure first
+                    List<Train> trains = userBookingService.getTrains(source, destination, departAfter, null,
+                            TrainService.SortOrder.DEPARTURE);
 
                     if (trains.isEmpty()) {
                         System.out.println("❌ No trains found between " + source + " and " + destination);
-                        System.out.println("💡 Try: Guntur, Mangalagiri, Vijayawada");
+                        // No direct train; offer journeys that change trains on the way
+                        List<Itinerary> journeys = userBookingService.planJourneys(source, destination, travelDate);
+                        if (journeys.isEmpty()) {
+                            System.out.println("💡 Try: Guntur, Mangalagiri, Vijayawada");
+                        } else {
+                            System.out.println("\n=== Connecting Journeys ===");
+                            for (int j = 0; j < journeys.size(); j++) {
+                                System.out.println((j + 1) + ". " + journeys.get(j));
+                            }
+                            System.out.println("💡 Search and book each leg separately.");
+                        }
                         break;
                     }
 
@@ -120,6 +176,8 @@ public class Main {
                     for (Train t : trains) {
                         System.out.println(index + ". " + t.getTrainInfo());
                         System.out.println("   Route: " + String.join(" → ", t.getStations()));
+                        System.out.println("   Free seats " + source + " → " + destination + " on " + travelDate + ": "
+                                + userBookingService.countFreeSeats(t, source, destination, travelDate));
                         System.out.println("   Schedule:");
                         for (Map.Entry<String, String> entry : t.getStationTimes().entrySet()) {
                             System.out.println("     " + entry.getKey() + " : " + entry.getValue());
@@ -138,6 +196,9 @@ public class Main {
                     }
 
                     trainSelectedForBooking = trains.get(selectedIndex - 1);
+                    sourceSelectedForBooking = source;
+                    destinationSelectedForBooking = destination;
+                    dateSelectedForBooking = travelDate;
                     System.out.println("✅ Selected: " + trainSelectedForBooking.getTrainInfo());
                     break;
 
@@ -148,29 +209,67 @@ public class Main {
                     }
 
                     System.out.println("Select a seat for: " + trainSelectedForBooking.getTrainInfo());
-                    List<List<Integer>> seats = userBookingService.fetchSeats(trainSelectedForBooking);
+                    SeatMap seats = userBookingService.fetchSeats(trainSelectedForBooking, dateSelectedForBooking);
+                    if (seats.capacity() == 0) {
+                        // The date left the booking window since the search, or the train is gone
+                        System.out.println("❌ Seats on " + dateSelectedForBooking + " can't be booked. Please search again.");
+                        trainSelectedForBooking = null;
+                        break;
+                    }
+                    // Only the legs of the searched journey matter; a seat sold elsewhere on the route is still free
+                    long legs = trainSelectedForBooking.legsBetween(sourceSelectedForBooking, destinationSelectedForBooking);
 
-                    System.out.println("\n=== Available Seats ===");
+                    System.out.println("\n=== Available Seats (" + sourceSelectedForBooking + " → "
+                            + destinationSelectedForBooking + ", " + dateSelectedForBooking + ") ===");
                     System.out.println("0 = Available, 1 = Booked");
-                    System.out.println("Rows: 0-3, Columns: 0-5");
+                    System.out.println("Rows: 0-" + (seats.getRows() - 1) + ", Columns: 0-" + (seats.getColumns() - 1));
+                    System.out.println("Free seats: " + seats.freeSeats(legs) + "/" + seats.capacity());
                     System.out.println("-----------------------");
-                    for (int i = 0; i < seats.size(); i++) {
+                    for (int i = 0; i < seats.getRows(); i++) {
                         System.out.print("Row " + i + ": ");
-                        for (Integer val : seats.get(i)) {
-                            System.out.print(val + " ");
+                        for (int j = 0; j < seats.getColumns(); j++) {
+                            System.out.print((seats.isBooked(i, j, legs) ? 1 : 0) + " ");
                         }
                         System.out.println();
                     }
 
-                    System.out.print("Enter the row (0-3): ");
+                    System.out.print("Enter the row (0-" + (seats.getRows() - 1) + "), or -1 to get the best available seat: ");
                     int row = sc.nextInt();
-                    System.out.print("Enter the column (0-5): ");
-                    int col = sc.nextInt();
+                    Boolean booked;
+                    if (row < 0) {
+                        System.out.print("How many passengers? ");
+                        int passengers = sc.nextInt();
+                        List<String> passengerNames = new ArrayList<>();
+                        for (int p = 1; p < passengers; p++) {
+                            System.out.print("Name of passenger " + (p + 1) + ": ");
+                            passengerNames.add(sc.next());
+                        }
+                        System.out.print("Prefer a window seat? (y/n): ");
+                        SeatAllocator.Policy policy = sc.next().equalsIgnoreCase("y")
+                                ? SeatAllocator.Policy.WINDOW : SeatAllocator.Policy.LOWEST_ROW;
+                        System.out.println("Booking your seat...");
+                        if (passengers > 1) {
+                            // The first seat is the account holder's; everyone sits together or nobody is booked
+                            passengerNames.add(0, null);
+                            booked = !userBookingService.bookSeatsTogether(trainSelectedForBooking, sourceSelectedForBooking,
+                                    destinationSelectedForBooking, dateSelectedForBooking, passengerNames, policy).isEmpty();
+                        } else {
+                            booked = userBookingService.bookBestAvailableSeat(trainSelectedForBooking,
+                                    sourceSelectedForBooking, destinationSelectedForBooking, dateSelectedForBooking, policy);
+                        }
+                    } else {
+                        System.out.print("Enter the column (0-" + (seats.getColumns() - 1) + "): ");
+                        int col = sc.nextInt();
 
-                    System.out.println("Booking your seat...");
-                    Boolean booked = userBookingService.bookTrainSeat(trainSelectedForBooking, row, col);
+                        System.out.println("Booking your seat...");
+                        booked = userBookingService.bookTrainSeat(trainSelectedForBooking,
+                                sourceSelectedForBooking, destinationSelectedForBooking, dateSelectedForBooking, row, col);
+                    }
                     if (booked) {
                         System.out.println("✅ Booked! Enjoy your journey");
+                        for (Ticket ticket : userBookingService.getLastBookedTickets()) {
+                            System.out.println("🎫 " + ticket.getTicketInfo());
+                        }
                         // Refresh the train data after successful booking
                         try {
                             TrainService trainService = new TrainService();
@@ -0,0 +1,488 @@
+package ticket.Services;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ticket.entities.SeatMap;
+import ticket.entities.StationRegistry;
+import ticket.entities.Ticket;
+import ticket.entities.Train;
+import ticket.entities.User;
+import util.Logging;
+import util.StreamingJsonLoader;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * Binary snapshots of the train and user stores (trains.bin, users.bin next to the JSON files).
+ *
+ * Layout: a 32-byte header (magic, format version, kind, record count, offset of the station
+ * table), then one record per train or user, each prefixed with its length, then the station
+ * table. Records refer to stations by their index in that table, seat maps are a bitmap of
+ * booked seats followed by the leg masks of only those seats (and the row lengths, if some rows
+ * are short), and dates are epoch days. The file is read through FileChannel.map in segments of
+ * up to 1 GB; a record never crosses a segment, so records decode straight from the mapped pages
+ * without copying them into a read buffer.
+ *
+ * Loading is eager: every record is decoded into the same Train and User objects the JSON path
+ * builds, because the repositories, TicketStore and the journey planner index all of them at
+ * startup anyway. What the format saves is text parsing and the per-field work of data binding,
+ * not the decoding itself.
+ *
+ * With db.snapshot=binary the repositories write a snapshot next to every JSON save and start from
+ * it while it is at least as new as the JSON. JSON stays the interchange format: run this class
+ * with toBinary or toJson to convert either way.
+ */
+public final class BinarySnapshot {
+    private static final Logger LOGGER = Logging.getLogger(BinarySnapshot.class);
+
+    public static final boolean ENABLED = "binary".equalsIgnoreCase(System.getProperty("db.snapshot", "json"));
+    public static final int VERSION = 3;
+
+    private static final int MAGIC = 0x54425346; // "TBSF"
+    private static final int HEADER_SIZE = 32;
+    private static final long SEGMENT_SIZE = 1L << 30;
+    private static final int SKIP_TO_NEXT_SEGMENT = -1;
+    private static final int NO_DATE = Integer.MIN_VALUE;
+
+    public enum Kind { TRAINS, USERS }
+
+    private BinarySnapshot() {}
+
+    // trains.json -> trains.bin
+    public static File fileFor(File jsonFile) {
+        String name = jsonFile.getName();
+        int dot = name.lastIndexOf('.');
+        return new File(jsonFile.getParentFile(), (dot > 0 ? name.substring(0, dot) : name) + ".bin");
+    }
+
+    // True if the snapshot exists and nothing has written the JSON file since
+    public static boolean isCurrent(File snapshot, File jsonFile) {
+        return snapshot.exists() && (!jsonFile.exists() || snapshot.lastModified() >= jsonFile.lastModified());
+    }
+
+    public static void writeTrains(File file, Iterable<Train> trains) throws IOException {
+        try (Writer writer = new Writer(file, Kind.TRAINS)) {
+            for (Train train : trains) {
+                writer.add(train);
+            }
+            writer.finish();
+        }
+    }
+
+    public static void writeUsers(File file, Iterable<User> users) throws IOException {
+        try (Writer writer = new Writer(file, Kind.USERS)) {
+            for (User user : users) {
+                writer.add(user);
+            }
+            writer.finish();
+        }
+    }
+
+    public static long readTrains(File file, Consumer<? super Train> consumer) throws IOException {
+        return read(file, Kind.TRAINS, (record, stations) -> consumer.accept(decodeTrain(record, stations)));
+    }
+
+    public static long readUsers(File file, Consumer<? super User> consumer) throws IOException {
+        return read(file, Kind.USERS, (record, stations) -> consumer.accept(decodeUser(record, stations)));
+    }
+
+    // Streams records into a snapshot; finish() installs it, closing without finish() discards it
+    public static final class Writer implements Closeable {
+        private final File target;
+        private final File tempFile;
+        private final Kind kind;
+        private final FileChannel channel;
+        private final OutputStream out;
+        private final ByteArrayOutputStream recordBytes = new ByteArrayOutputStream(256);
+        private final DataOutputStream record = new DataOutputStream(recordBytes);
+        // This file's own station numbering, so off-route ticket stations never enter the registry
+        private final Map<String, Integer> stationIds = new HashMap<>();
+        private final List<String> stationNames = new ArrayList<>();
+        private long position = HEADER_SIZE;
+        private long count;
+        private boolean finished;
+
+        public Writer(File target, Kind kind) throws IOException {
+            this.target = target;
+            this.tempFile = new File(target.getParentFile(), target.getName() + ".tmp");
+            this.kind = kind;
+            this.channel = FileChannel.open(tempFile.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            this.out = new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16);
+            out.write(new byte[HEADER_SIZE]);
+        }
+
+        public void add(Train train) throws IOException {
+            requireKind(Kind.TRAINS);
+            recordBytes.reset();
+            writeString(record, train.getTrainId());
+            record.writeInt(train.getTrainNo());
+            int[] route = train.getRoute();
+            record.writeShort(route.length);
+            StationRegistry registry = StationRegistry.getInstance();
+            for (int station : route) {
+                record.writeInt(stationId(registry.nameOf(station)));
+            }
+            Map<String, String> times = train.getStationTimes();
+            record.writeShort(times != null ? times.size() : -1);
+            if (times != null) {
+                for (Map.Entry<String, String> time : times.entrySet()) {
+                    record.writeInt(stationId(time.getKey()));
+                    writeString(record, time.getValue());
+                }
+            }
+            SeatMap seats = train.getSeats();
+            record.writeInt(seats != null ? seats.getRows() : -1);
+            if (seats != null) {
+                record.writeInt(seats.getColumns());
+                // Read each mask once, so a booking racing the save can't split the bitmap from the masks
+                long[] masks = new long[seats.capacity()];
+                byte[] booked = new byte[(masks.length + 7) / 8];
+                for (int seat = 0; seat < masks.length; seat++) {
+                    masks[seat] = seats.legMask(seat);
+                    if (masks[seat] != 0) {
+                        booked[seat >>> 3] |= 1 << (seat & 7);
+                    }
+                }
+                record.write(booked);
+                for (long mask : masks) {
+                    if (mask != 0) {
+                        record.writeLong(mask);
+                    }
+                }
+                // Real seats per row when some rows are short, so their padding stays unsellable
+                record.writeBoolean(seats.isRagged());
+                if (seats.isRagged()) {
+                    for (int row = 0; row < seats.getRows(); row++) {
+                        record.writeInt(seats.rowLength(row));
+                    }
+                }
+            }
+            appendRecord();
+        }
+
+        public void add(User user) throws IOException {
+            requireKind(Kind.USERS);
+            recordBytes.reset();
+            writeString(record, user.getName());
+            writeString(record, user.getHashedPassword());
+            writeString(record, user.getUserId());
+            List<Ticket> tickets = user.getTicketsBooked() != null ? user.getTicketsBooked() : new ArrayList<>();
+            record.writeInt(tickets.size());
+            for (Ticket ticket : tickets) {
+                writeString(record, ticket.getTicketId());
+                writeString(record, ticket.getUserId());
+                record.writeInt(ticket.getSource() != null ? stationId(ticket.getSource()) : -1);
+                record.writeInt(ticket.getDestination() != null ? stationId(ticket.getDestination()) : -1);
+                record.writeInt(ticket.getDateOfTravel() != null
+                        ? (int) LocalDate.parse(ticket.getDateOfTravel()).toEpochDay() : NO_DATE);
+                writeString(record, ticket.getTrainId());
+                record.writeInt(ticket.getTrainNo());
+                record.writeInt(ticket.getSeatRow());
+                record.writeInt(ticket.getSeatColumn());
+                writeString(record, ticket.getPassengerName());
+            }
+            appendRecord();
+        }
+
+        private void requireKind(Kind expected) {
+            if (kind != expected) {
+                throw new IllegalStateException("This snapshot holds " + kind + ", not " + expected);
+            }
+        }
+
+        private void appendRecord() throws IOException {
+            int length = recordBytes.size();
+            long left = SEGMENT_SIZE - position % SEGMENT_SIZE;
+            if (Integer.BYTES + length > left) {
+                // Pad to the next segment so every record lies inside one mapping
+                if (Integer.BYTES + length > SEGMENT_SIZE) {
+                    throw new IOException("Record of " + length + " bytes is too large for a snapshot");
+                }
+                ByteBuffer padding = ByteBuffer.allocate((int) left);
+                if (left >= Integer.BYTES) {
+                    padding.putInt(0, SKIP_TO_NEXT_SEGMENT);
+                }
+                out.write(padding.array());
+                position += left;
+            }
+            out.write(ByteBuffer.allocate(Integer.BYTES).putInt(0, length).array());
+            recordBytes.writeTo(out);
+            position += Integer.BYTES + length;
+            count++;
+        }
+
+        private int stationId(String station) {
+            return stationIds.computeIfAbsent(StationRegistry.normalize(station), key -> {
+                stationNames.add(station.trim());
+                return stationNames.size() - 1;
+            });
+        }
+
+        // Writes the station table and header, syncs and renames the snapshot into place
+        public void finish() throws IOException {
+            DataOutputStream table = new DataOutputStream(out);
+            table.writeInt(stationNames.size());
+            for (String name : stationNames) {
+                writeString(table, name);
+            }
+            table.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putInt(kind.ordinal()).putInt(0)
+                    .putLong(count).putLong(position).flip();
+            channel.write(header, 0);
+            channel.force(true);
+            channel.close();
+            Files.move(tempFile.toPath(), target.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            finished = true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!finished) {
+                channel.close();
+                Files.deleteIfExists(tempFile.toPath());
+            }
+        }
+    }
+
+    private interface RecordReader {
+        void read(ByteBuffer record, String[] stations) throws IOException;
+    }
+
+    private static long read(File file, Kind kind, RecordReader reader) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // keep reading until the header is complete
+            }
+            header.flip();
+            if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC) {
+                throw new IOException(file.getName() + " is not a snapshot file");
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException(file.getName() + " has snapshot version " + version + ", expected " + VERSION);
+            }
+            int storedKind = header.getInt();
+            if (storedKind != kind.ordinal()) {
+                throw new IOException(file.getName() + " does not hold " + kind);
+            }
+            header.getInt();
+            long count = header.getLong();
+            long tableOffset = header.getLong();
+
+            String[] stations = readStationTable(channel, tableOffset);
+
+            long read = 0;
+            long position = HEADER_SIZE;
+            MappedByteBuffer segment = null;
+            long segmentStart = -1;
+            while (read < count) {
+                long start = position - position % SEGMENT_SIZE;
+                if (start != segmentStart) {
+                    segmentStart = start;
+                    segment = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_SIZE, tableOffset - start));
+                }
+                int offset = (int) (position - segmentStart);
+                if (segment.limit() - offset < Integer.BYTES || segment.getInt(offset) == SKIP_TO_NEXT_SEGMENT) {
+                    position = segmentStart + SEGMENT_SIZE;
+                    continue;
+                }
+                int length = segment.getInt(offset);
+                ByteBuffer record = segment.duplicate();
+                record.position(offset + Integer.BYTES).limit(offset + Integer.BYTES + length);
+                reader.read(record.slice(), stations);
+                position += Integer.BYTES + length;
+                read++;
+            }
+            return read;
+        }
+    }
+
+    // File station index -> canonical station name in this process
+    private static String[] readStationTable(FileChannel channel, long offset) throws IOException {
+        channel.position(offset);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+        String[] stations = new String[in.readInt()];
+        StationRegistry registry = StationRegistry.getInstance();
+        for (int id = 0; id < stations.length; id++) {
+            byte[] name = new byte[in.readShort()];
+            in.readFully(name);
+            stations[id] = registry.canonicalName(new String(name, StandardCharsets.UTF_8));
+        }
+        return stations;
+    }
+
+    private static Train decodeTrain(ByteBuffer record, String[] stations) {
+        Train train = new Train();
+        train.setTrainId(readString(record));
+        train.setTrainNo(record.getInt());
+        String[] route = new String[record.getShort()];
+        for (int stop = 0; stop < route.length; stop++) {
+            route[stop] = stations[record.getInt()];
+        }
+        int timeCount = record.getShort();
+        if (timeCount >= 0) {
+            Map<String, String> times = new LinkedHashMap<>();
+            for (int i = 0; i < timeCount; i++) {
+                String station = stations[record.getInt()];
+                times.put(station, readString(record));
+            }
+            train.setStationTimes(times);
+        }
+        int rows = record.getInt();
+        if (rows >= 0) {
+            SeatMap seats = new SeatMap(rows, record.getInt());
+            byte[] booked = new byte[(seats.capacity() + 7) / 8];
+            record.get(booked);
+            for (int seat = 0; seat < seats.capacity(); seat++) {
+                if ((booked[seat >>> 3] & (1 << (seat & 7))) != 0) {
+                    seats.setLegMask(seat, record.getLong());
+                }
+            }
+            if (record.get() != 0) {
+                int[] lengths = new int[rows];
+                for (int row = 0; row < rows; row++) {
+                    lengths[row] = record.getInt();
+                }
+                seats.setRowLengths(lengths);
+            }
+            train.setSeats(seats);
+        }
+        train.setStations(Arrays.asList(route));
+        return train;
+    }
+
+    private static User decodeUser(ByteBuffer record, String[] stations) {
+        User user = new User();
+        user.setName(readString(record));
+        user.setHashedPassword(readString(record));
+        user.setUserId(readString(record));
+        int ticketCount = record.getInt();
+        List<Ticket> tickets = new ArrayList<>(ticketCount);
+        for (int i = 0; i < ticketCount; i++) {
+            Ticket ticket = new Ticket();
+            ticket.setTicketId(readString(record));
+            ticket.setUserId(readString(record));
+            int source = record.getInt();
+            int destination = record.getInt();
+            ticket.setSource(source >= 0 ? stations[source] : null);
+            ticket.setDestination(destination >= 0 ? stations[destination] : null);
+            int date = record.getInt();
+            ticket.setDateOfTravel(date != NO_DATE ? LocalDate.ofEpochDay(date).toString() : null);
+            ticket.setTrainId(readString(record));
+            ticket.setTrainNo(record.getInt());
+            ticket.setSeatRow(record.getInt());
+            ticket.setSeatColumn(record.getInt());
+            ticket.setPassengerName(readString(record));
+            tickets.add(ticket);
+        }
+        user.setTicketsBooked(tickets);
+        return user;
+    }
+
+    // Short length (-1 for null) followed by UTF-8 bytes
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeShort(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > Short.MAX_VALUE) {
+            throw new IOException("String of " + bytes.length + " bytes is too long for a snapshot");
+        }
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getShort();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // toBinary <trains|users> <in.json> <out.bin>, or toJson <trains|users> <in.bin> <out.json>
+    public static void main(String[] args) throws IOException {
+        if (args.length != 4 || !Arrays.asList("toBinary", "toJson").contains(args[0])
+                || !Arrays.asList("trains", "users").contains(args[1])) {
+            System.out.println("Usage: BinarySnapshot toBinary|toJson trains|users <input> <output>");
+            return;
+        }
+        Kind kind = args[1].equals("trains") ? Kind.TRAINS : Kind.USERS;
+        File input = new File(args[2]);
+        File output = new File(args[3]);
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+        long converted;
+        if (args[0].equals("toBinary")) {
+            try (Writer writer = new Writer(output, kind)) {
+                converted = kind == Kind.TRAINS
+                        ? StreamingJsonLoader.forEach(objectMapper, input, Train.class, train -> add(writer, train))
+                        : StreamingJsonLoader.forEach(objectMapper, input, User.class, user -> add(writer, user));
+                writer.finish();
+            }
+        } else {
+            try (JsonGenerator json = objectMapper.getFactory().createGenerator(output, JsonEncoding.UTF8)) {
+                json.writeStartArray();
+                Consumer<Object> write = value -> {
+                    try {
+                        objectMapper.writeValue(json, value);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                };
+                converted = kind == Kind.TRAINS ? readTrains(input, write) : readUsers(input, write);
+                json.writeEndArray();
+            }
+        }
+        LOGGER.info(() -> "🔁 Converted " + converted + " " + args[1] + " from " + input + " to " + output);
+    }
+
+    private static void add(Writer writer, Object value) {
+        try {
+            if (value instanceof Train) {
+                writer.add((Train) value);
+            } else {
+                writer.add((User) value);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package ticket.Services;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ticket.entities.JournalEntry;
+import util.LocalDb;
+import util.Logging;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Logger;
+
+/**
+ * Append-only write-ahead log of booking events, one JSON object per line.
+ *
+ * A booking appends a few small lines here instead of rewriting trains.json and users.json.
+ * Appends are made durable by group commit: a single flusher thread calls fsync for everything
+ * written so far, and every appender waiting on that batch is released together. Once enough
+ * entries pile up the journal is compacted: fresh snapshot files are written and the log is
+ * truncated. On startup the repositories load the snapshots and replay the journal on top.
+ * An entry and its in-memory effect are committed under a shared lock that compaction takes
+ * exclusively, so a snapshot never misses a change whose journal line it is about to discard.
+ *
+ * If the process died mid-append the last line is incomplete; it is cut off when the journal
+ * is opened, so the next append starts on a clean line and the lost entry was never acknowledged.
+ */
+public class BookingJournal {
+    private static final Logger LOGGER = Logging.getLogger(BookingJournal.class);
+
+    public static final String JOURNAL_PATH = LocalDb.path("journal.log");
+    private static final int COMPACTION_THRESHOLD = Integer.getInteger("journal.compactionThreshold", 1000);
+
+    private static volatile BookingJournal instance;
+
+    public interface SnapshotWriter {
+        void writeSnapshots() throws IOException;
+    }
+
+    private final File journalFile;
+    private final FileChannel channel;
+    private final ObjectMapper objectMapper;
+    private final Object lock = new Object();
+    // Shared by commits (append + in-memory update), exclusive for compaction
+    private final ReadWriteLock commitLock = new ReentrantReadWriteLock();
+    private long writtenSequence;
+    private long syncedSequence;
+    private int entriesSinceCompaction;
+    private IOException syncFailure;
+
+    private BookingJournal(File journalFile) throws IOException {
+        this.journalFile = journalFile;
+        this.objectMapper = new ObjectMapper();
+        this.objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+        journalFile.getParentFile().mkdirs();
+        this.channel = FileChannel.open(journalFile.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+
+        // Crash recovery: drop a torn tail left by an append that never completed
+        List<JournalEntry> entries = new ArrayList<>();
+        long validLength = scan(entries);
+        long tornBytes = channel.size() - validLength;
+        if (tornBytes > 0) {
+            LOGGER.warning(() -> "⚠️ Truncating incomplete journal tail (" + tornBytes + " bytes)");
+            channel.truncate(validLength);
+            channel.force(true);
+        }
+        this.entriesSinceCompaction = entries.size();
+
+        Thread flusher = new Thread(this::flushLoop, "booking-journal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    public static BookingJournal getInstance() throws IOException {
+        BookingJournal journal = instance;
+        if (journal == null) {
+            synchronized (BookingJournal.class) {
+                journal = instance;
+                if (journal == null) {
+                    journal = new BookingJournal(new File(JOURNAL_PATH));
+                    instance = journal;
+                }
+            }
+        }
+        return journal;
+    }
+
+    // Appends one entry and returns once it has been fsync'ed (possibly together with others)
+    public void append(JournalEntry entry) throws IOException {
+        byte[] json = objectMapper.writeValueAsBytes(entry);
+        ByteBuffer line = ByteBuffer.allocate(json.length + 1);
+        line.put(json).put((byte) '\n').flip();
+
+        long sequence;
+        synchronized (lock) {
+            while (line.hasRemaining()) {
+                channel.write(line);
+            }
+            sequence = ++writtenSequence;
+            entriesSinceCompaction++;
+            lock.notifyAll();
+        }
+        awaitSync(sequence);
+    }
+
+    // Appends the entry and, once it is durable, applies it to the in-memory state with no
+    // compaction in between; nothing is applied if the append fails
+    public void commit(JournalEntry entry, Runnable apply) throws IOException {
+        commitLock.readLock().lock();
+        try {
+            append(entry);
+            apply.run();
+        } finally {
+            commitLock.readLock().unlock();
+        }
+    }
+
+    private void awaitSync(long sequence) throws IOException {
+        synchronized (lock) {
+            while (syncedSequence < sequence) {
+                if (syncFailure != null) {
+                    throw syncFailure;
+                }
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while waiting for journal sync", e);
+                }
+            }
+        }
+    }
+
+    private void flushLoop() {
+        while (true) {
+            long target;
+            try {
+                synchronized (lock) {
+                    while (writtenSequence == syncedSequence) {
+                        lock.wait();
+                    }
+                    target = writtenSequence;
+                }
+                // Everything written up to target is covered by this one fsync
+                channel.force(false);
+                synchronized (lock) {
+                    syncedSequence = target;
+                    lock.notifyAll();
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (IOException e) {
+                synchronized (lock) {
+                    syncFailure = e;
+                    lock.notifyAll();
+                }
+                return;
+            }
+        }
+    }
+
+    public List<JournalEntry> readAll() throws IOException {
+        List<JournalEntry> entries = new ArrayList<>();
+        scan(entries);
+        return entries;
+    }
+
+    // Parses complete lines into entries and returns the byte length of the valid prefix
+    private long scan(List<JournalEntry> entries) throws IOException {
+        if (!journalFile.exists()) {
+            return 0;
+        }
+        byte[] bytes = Files.readAllBytes(journalFile.toPath());
+        int lineStart = 0;
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] != '\n') {
+                continue;
+            }
+            if (i > lineStart) {
+                try {
+                    entries.add(objectMapper.readValue(bytes, lineStart, i - lineStart, JournalEntry.class));
+                } catch (IOException e) {
+                    LOGGER.warning(() -> "⚠️ Ignoring unreadable journal entry: " + e.getMessage());
+                    return lineStart;
+                }
+            }
+            lineStart = i + 1;
+        }
+        // Anything after the last newline is a partial append
+        return lineStart;
+    }
+
+    public boolean needsCompaction() {
+        synchronized (lock) {
+            return entriesSinceCompaction >= COMPACTION_THRESHOLD;
+        }
+    }
+
+    /**
+     * Writes fresh snapshots and truncates the journal. Commits in flight finish first and new
+     * ones wait, so every entry being discarded is already reflected in the in-memory state being
+     * written. Entries appended without {@link #commit} must apply their change before appending.
+     */
+    public void compact(SnapshotWriter snapshotWriter) throws IOException {
+        commitLock.writeLock().lock();
+        try {
+            synchronized (lock) {
+                snapshotWriter.writeSnapshots();
+                channel.truncate(0);
+                channel.force(true);
+                entriesSinceCompaction = 0;
+                LOGGER.info("🗜️ Compacted booking journal into snapshots");
+            }
+        } finally {
+            commitLock.writeLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package ticket.Services;
+
+import util.Logging;
+import util.UserServiceUtil;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * Runs BCrypt hashing and checking off the caller's thread.
+ *
+ * BCrypt is slow on purpose, so a login spike must not take every request thread with it. The
+ * work goes to one pool with a thread per CPU and a bounded queue. When the queue is full the
+ * future fails straight away instead of piling up. Each user name gets at most
+ * login.maxAttemptsPerMinute checks per minute (5 by default), so guessing one account can't hog
+ * the pool; a timer drops windows once their minute is over, so the map only holds names seen in
+ * the last minute. The cost of new hashes is bcrypt.cost (see {@link UserServiceUtil}).
+ */
+public class CredentialService {
+    private static final Logger LOGGER = Logging.getLogger(CredentialService.class);
+
+    private static final int THREADS = Runtime.getRuntime().availableProcessors();
+    private static final int QUEUE_CAPACITY = Integer.getInteger("credentials.queueCapacity", THREADS * 64);
+    private static final int MAX_ATTEMPTS_PER_MINUTE = Integer.getInteger("login.maxAttemptsPerMinute", 5);
+    private static final long WINDOW_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private static volatile CredentialService instance;
+
+    private final ThreadPoolExecutor executor;
+    private final ScheduledExecutorService evictor;
+    private final Map<String, AttemptWindow> attempts = new ConcurrentHashMap<>();
+
+    private static final class AttemptWindow {
+        final long start;
+        final int count;
+
+        AttemptWindow(long start, int count) {
+            this.start = start;
+            this.count = count;
+        }
+    }
+
+    private CredentialService() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(THREADS, THREADS, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY), runnable -> {
+                    Thread thread = new Thread(runnable, "credential-hasher-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "login-attempt-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        evictor.scheduleWithFixedDelay(this::evictExpiredWindows, WINDOW_MILLIS, WINDOW_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    public static CredentialService getInstance() {
+        CredentialService service = instance;
+        if (service == null) {
+            synchronized (CredentialService.class) {
+                service = instance;
+                if (service == null) {
+                    service = new CredentialService();
+                    instance = service;
+                }
+            }
+        }
+        return service;
+    }
+
+    public CompletableFuture<String> hashPassword(String plainPassword) {
+        return submit(() -> UserServiceUtil.hashPassword(plainPassword));
+    }
+
+    // False without hashing anything if the user has run out of attempts for this minute
+    public CompletableFuture<Boolean> checkPassword(String userName, String plainPassword, String hashedPassword) {
+        if (!tryAcquireAttempt(userName)) {
+            LOGGER.warning(() -> "⚠️ Too many login attempts for " + userName + ". Please wait a minute.");
+            return CompletableFuture.completedFuture(false);
+        }
+        return submit(() -> UserServiceUtil.checkPassword(plainPassword, hashedPassword))
+                .thenApply(matches -> {
+                    if (matches) {
+                        attempts.remove(userName);
+                    }
+                    return matches;
+                });
+    }
+
+    private boolean tryAcquireAttempt(String userName) {
+        long now = System.currentTimeMillis();
+        AttemptWindow window = attempts.compute(userName, (name, current) ->
+                current == null || now - current.start >= WINDOW_MILLIS
+                        ? new AttemptWindow(now, 1)
+                        : new AttemptWindow(current.start, current.count + 1));
+        return window.count <= MAX_ATTEMPTS_PER_MINUTE;
+    }
+
+    private void evictExpiredWindows() {
+        long now = System.currentTimeMillis();
+        attempts.values().removeIf(window -> now - window.start >= WINDOW_MILLIS);
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> work) {
+        try {
+            return CompletableFuture.supplyAsync(work, executor);
+        } catch (RejectedExecutionException e) {
+            CompletableFuture<T> busy = new CompletableFuture<>();
+            busy.completeExceptionally(new RejectedExecutionException("Credential service is busy, try again shortly"));
+            return busy;
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package ticket.Services;
+
+import ticket.entities.Itinerary;
+import ticket.entities.StationRegistry;
+import ticket.entities.Timetable;
+import ticket.entities.Train;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Finds journeys between two stations, changing trains where needed.
+ *
+ * Every pair of consecutive stops of every train becomes a connection, and the connections are
+ * sorted once by departure time. A query is a connection scan: a single pass over that array per
+ * allowed number of trains, so answering costs (transfers + 1) x connections and does not depend
+ * on how the trains are connected. A change of trains needs at least planner.minTransferMinutes
+ * (10 by default) at the station. Every train runs every day, so the connections are those of one
+ * service day: a journey may run past midnight on trains that left before it, but never boards a
+ * train of the following day. Results are cached per origin and destination, and both the
+ * connections and the cache are rebuilt whenever the train data changes.
+ */
+public class JourneyPlanner {
+    public static final int DEFAULT_MAX_TRANSFERS = Integer.getInteger("planner.maxTransfers", 2);
+    public static final int MIN_TRANSFER_SECONDS = Integer.getInteger("planner.minTransferMinutes", 10) * 60;
+    private static final int MAX_RESULTS = 5;
+    private static final int CACHE_LIMIT = 10_000;
+    private static final int UNREACHED = Integer.MAX_VALUE;
+
+    private static volatile JourneyPlanner instance;
+
+    private final TrainRepository trainRepository;
+    private volatile Connections connections;
+    private final Map<String, List<Itinerary>> cache = new ConcurrentHashMap<>();
+
+    // All connections of one version of the train data, as parallel arrays sorted by departure
+    private static final class Connections {
+        final long version;
+        final int stations;
+        final Train[] trains;
+        final int[] trip;
+        final int[] from;
+        final int[] to;
+        final int[] departure;
+        final int[] arrival;
+
+        Connections(long version, int stations, Train[] trains, int size) {
+            this.version = version;
+            this.stations = stations;
+            this.trains = trains;
+            this.trip = new int[size];
+            this.from = new int[size];
+            this.to = new int[size];
+            this.departure = new int[size];
+            this.arrival = new int[size];
+        }
+
+        int size() { return trip.length; }
+    }
+
+    private JourneyPlanner(TrainRepository trainRepository) {
+        this.trainRepository = trainRepository;
+    }
+
+    public static JourneyPlanner getInstance() throws IOException {
+        JourneyPlanner planner = instance;
+        if (planner == null) {
+            synchronized (JourneyPlanner.class) {
+                planner = instance;
+                if (planner == null) {
+                    planner = new JourneyPlanner(TrainRepository.getInstance());
+                    instance = planner;
+                }
+            }
+        }
+        return planner;
+    }
+
+    public List<Itinerary> plan(String origin, String destination, LocalDate date) throws IOException {
+        return plan(origin, destination, date, DEFAULT_MAX_TRANSFERS);
+    }
+
+    // Fastest itineraries with at most maxTransfers changes, earliest arrival first. Times are seconds
+    // after midnight of the travel date; as every train runs daily, the date doesn't change the result
+    public List<Itinerary> plan(String origin, String destination, LocalDate date, int maxTransfers)
+            throws IOException {
+        StationRegistry registry = StationRegistry.getInstance();
+        int originId = registry.findId(origin);
+        int destinationId = registry.findId(destination);
+        if (originId < 0 || destinationId < 0 || originId == destinationId || maxTransfers < 0) {
+            return Collections.emptyList();
+        }
+
+        Connections current = currentConnections();
+        // Stations registered after these connections were built have no connections in them
+        if (originId >= current.stations || destinationId >= current.stations) {
+            return Collections.emptyList();
+        }
+        String key = originId + "|" + destinationId + "|" + maxTransfers;
+        List<Itinerary> cached = cache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        if (cache.size() >= CACHE_LIMIT) {
+            cache.clear();
+        }
+        List<Itinerary> result = Collections.unmodifiableList(search(current, originId, destinationId, maxTransfers));
+        cache.put(key, result);
+        return result;
+    }
+
+    private Connections currentConnections() throws IOException {
+        long version = trainRepository.getVersion();
+        Connections current = connections;
+        if (current == null || current.version != version) {
+            synchronized (this) {
+                current = connections;
+                if (current == null || current.version != version) {
+                    current = build(version, trainRepository.getTrains());
+                    cache.clear();
+                    connections = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private static Connections build(long version, List<Train> trainList) {
+        List<Train> trains = new ArrayList<>();
+        int size = 0;
+        for (Train train : trainList) {
+            Timetable timetable = train.getTimetable();
+            if (timetable != null && timetable.stops() > 1) {
+                trains.add(train);
+                size += timetable.stops() - 1;
+            }
+        }
+
+        // Sort connection indexes by departure; ties keep route order so a trip is always scanned front to back
+        int[][] order = new int[size][];
+        int n = 0;
+        for (int t = 0; t < trains.size(); t++) {
+            Timetable timetable = trains.get(t).getTimetable();
+            for (int stop = 0; stop < timetable.stops() - 1; stop++) {
+                order[n++] = new int[] {timetable.departureAt(stop), t, stop};
+            }
+        }
+        Arrays.sort(order, Comparator.<int[]>comparingInt(c -> c[0])
+                .thenComparingInt(c -> c[1]).thenComparingInt(c -> c[2]));
+
+        Connections built = new Connections(version, StationRegistry.getInstance().size(),
+                trains.toArray(new Train[0]), size);
+        for (int i = 0; i < size; i++) {
+            int t = order[i][1];
+            int stop = order[i][2];
+            int[] route = trains.get(t).getRoute();
+            built.trip[i] = t;
+            built.from[i] = route[stop];
+            built.to[i] = route[stop + 1];
+            built.departure[i] = order[i][0];
+            built.arrival[i] = trains.get(t).getTimetable().arrivalAt(stop + 1);
+        }
+        return built;
+    }
+
+    // Repeats the scan from just after each found departure to collect several options through the day
+    private static List<Itinerary> search(Connections c, int origin, int destination, int maxTransfers) {
+        Map<String, Itinerary> found = new LinkedHashMap<>();
+        int departAfter = 0;
+        while (found.size() < MAX_RESULTS) {
+            List<Itinerary> round = scan(c, origin, destination, maxTransfers, departAfter);
+            if (round.isEmpty()) {
+                break;
+            }
+            int earliestDeparture = Integer.MAX_VALUE;
+            for (Itinerary itinerary : round) {
+                found.putIfAbsent(itinerary.toString(), itinerary);
+                earliestDeparture = Math.min(earliestDeparture, itinerary.getDeparture());
+            }
+            departAfter = earliestDeparture + 1;
+        }
+        List<Itinerary> result = new ArrayList<>(found.values());
+        result.sort(Comparator.comparingInt(Itinerary::getArrival).thenComparingInt(Itinerary::getTransfers));
+        return result.size() > MAX_RESULTS ? result.subList(0, MAX_RESULTS) : result;
+    }
+
+    // Round r allows r + 1 trains. Each round is one pass over the connections; a label keeps the
+    // connection the passenger boarded and left by, so the legs can be read back afterwards.
+    private static List<Itinerary> scan(Connections c, int origin, int destination, int maxTransfers,
+                                        int departAfter) {
+        int rounds = maxTransfers + 1;
+        int[][] arrival = new int[rounds][];
+        int[][] boardedBy = new int[rounds][];
+        int[][] alightedBy = new int[rounds][];
+        int[] boarding = new int[c.trains.length];
+
+        int[] previous = new int[c.stations];
+        Arrays.fill(previous, UNREACHED);
+        previous[origin] = departAfter;
+
+        List<Itinerary> result = new ArrayList<>();
+        int bestArrival = UNREACHED;
+        for (int r = 0; r < rounds; r++) {
+            int[] reached = previous.clone();
+            int[] enter = r == 0 ? new int[c.stations] : boardedBy[r - 1].clone();
+            int[] exit = r == 0 ? new int[c.stations] : alightedBy[r - 1].clone();
+            if (r == 0) {
+                Arrays.fill(enter, -1);
+                Arrays.fill(exit, -1);
+            }
+            Arrays.fill(boarding, -1);
+
+            for (int i = 0; i < c.size(); i++) {
+                int trip = c.trip[i];
+                if (boarding[trip] < 0) {
+                    int at = c.from[i];
+                    int ready = previous[at];
+                    if (ready != UNREACHED && at != origin) {
+                        ready += MIN_TRANSFER_SECONDS;
+                    }
+                    if (ready == UNREACHED || ready > c.departure[i]) {
+                        continue;
+                    }
+                    boarding[trip] = i;
+                }
+                if (c.arrival[i] < reached[c.to[i]]) {
+                    reached[c.to[i]] = c.arrival[i];
+                    enter[c.to[i]] = boarding[trip];
+                    exit[c.to[i]] = i;
+                }
+            }
+
+            arrival[r] = reached;
+            boardedBy[r] = enter;
+            alightedBy[r] = exit;
+            previous = reached;
+
+            // Keep an itinerary with more changes only if it actually arrives earlier
+            if (reached[destination] < bestArrival) {
+                bestArrival = reached[destination];
+                result.add(itinerary(c, boardedBy, alightedBy, r, destination));
+            }
+        }
+        return result;
+    }
+
+    private static Itinerary itinerary(Connections c, int[][] boardedBy, int[][] alightedBy, int round,
+                                       int destination) {
+        StationRegistry registry = StationRegistry.getInstance();
+        List<Itinerary.Leg> legs = new ArrayList<>();
+        int station = destination;
+        for (int r = round; r >= 0 && alightedBy[r][station] >= 0; r--) {
+            int enter = boardedBy[r][station];
+            int exit = alightedBy[r][station];
+            legs.add(new Itinerary.Leg(c.trains[c.trip[enter]], registry.nameOf(c.from[enter]),
+                    registry.nameOf(c.to[exit]), c.departure[enter], c.arrival[exit]));
+            station = c.from[enter];
+        }
+        Collections.reverse(legs);
+        return new Itinerary(legs);
+    }
+}
@@ -0,0 +1,106 @@
+package ticket.Services;
+
+import ticket.entities.StationRegistry;
+import ticket.entities.Train;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Inverted index from a station id (see {@link StationRegistry}) to the trains that stop there.
+ *
+ * Each posting keeps the stop position, so a source → destination query only has to walk the
+ * shorter of the two posting lists and compare positions.
+ */
+public class RouteIndex {
+    private final Map<Integer, Map<String, Posting>> postingsByStation = new ConcurrentHashMap<>();
+    private final Map<String, int[]> stationsByTrain = new ConcurrentHashMap<>();
+
+    public static class Posting {
+        private final Train train;
+        private final int position;
+
+        Posting(Train train, int position) {
+            this.train = train;
+            this.position = position;
+        }
+
+        public Train getTrain() { return train; }
+        public int getPosition() { return position; }
+    }
+
+    public synchronized void rebuild(List<Train> trains) {
+        postingsByStation.clear();
+        stationsByTrain.clear();
+        for (Train train : trains) {
+            add(train);
+        }
+    }
+
+    // Replaces whatever was indexed for this train id with the train's current route
+    public synchronized void update(Train train) {
+        remove(train.getTrainId());
+        add(train);
+    }
+
+    public synchronized void remove(String trainId) {
+        int[] oldStations = stationsByTrain.remove(trainId);
+        if (oldStations == null) {
+            return;
+        }
+        for (int station : oldStations) {
+            Map<String, Posting> postings = postingsByStation.get(station);
+            if (postings != null) {
+                postings.remove(trainId);
+                if (postings.isEmpty()) {
+                    postingsByStation.remove(station);
+                }
+            }
+        }
+    }
+
+    private void add(Train train) {
+        if (train.getTrainId() == null) {
+            return;
+        }
+        int[] route = train.getRoute();
+        for (int i = 0; i < route.length; i++) {
+            // Keep the first stop if a route passes through a station twice
+            postingsByStation.computeIfAbsent(route[i], s -> new ConcurrentHashMap<>())
+                    .putIfAbsent(train.getTrainId(), new Posting(train, i));
+        }
+        stationsByTrain.put(train.getTrainId(), route);
+    }
+
+    public List<Train> findTrains(String source, String destination) {
+        StationRegistry registry = StationRegistry.getInstance();
+        return findTrains(registry.findId(source), registry.findId(destination));
+    }
+
+    public List<Train> findTrains(int sourceId, int destinationId) {
+        Map<String, Posting> fromPostings = postingsByStation.get(sourceId);
+        Map<String, Posting> toPostings = postingsByStation.get(destinationId);
+        if (fromPostings == null || toPostings == null) {
+            return new ArrayList<>();
+        }
+
+        // Walk the shorter posting list and probe the other one
+        boolean walkSource = fromPostings.size() <= toPostings.size();
+        Map<String, Posting> walked = walkSource ? fromPostings : toPostings;
+        Map<String, Posting> probed = walkSource ? toPostings : fromPostings;
+
+        List<Train> result = new ArrayList<>();
+        for (Map.Entry<String, Posting> entry : walked.entrySet()) {
+            Posting other = probed.get(entry.getKey());
+            if (other == null) {
+                continue;
+            }
+            Posting from = walkSource ? entry.getValue() : other;
+            Posting to = walkSource ? other : entry.getValue();
+            if (from.getPosition() < to.getPosition()) {
+                result.add(from.getTrain());
+            }
+        }
+        return result;
+    }
+}
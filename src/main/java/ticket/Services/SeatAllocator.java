@@ -0,0 +1,113 @@
+package ticket.Services;
+
+import ticket.entities.ReservationResult;
+import ticket.entities.SeatMap;
+
+/**
+ * Picks and claims the best free seat (or block of adjacent seats) for a journey in one step.
+ *
+ * Rows are tried from the front. A row whose per-leg booking counts show it can't fit the request
+ * is skipped without reading its seats, so a nearly full train costs about one check per row.
+ * Seats are claimed with the same compare-and-set as a hand-picked booking. If another booker
+ * wins the race, the allocator moves on to the next candidate instead of failing.
+ */
+public class SeatAllocator {
+    public enum Policy {
+        // First free seat, front rows first
+        LOWEST_ROW,
+        // Window seats (first and last column) in any row before any aisle seat
+        WINDOW
+    }
+
+    private final Policy policy;
+
+    public SeatAllocator(Policy policy) {
+        this.policy = policy;
+    }
+
+    // Claims one seat for the given legs; returns its index (row * columns + column) or -1 if none is free
+    public int allocate(SeatMap seats, long legs) {
+        if (policy == Policy.WINDOW) {
+            int seat = scan(seats, legs, true);
+            if (seat >= 0) {
+                return seat;
+            }
+        }
+        return scan(seats, legs, false);
+    }
+
+    // Claims count adjacent seats in one row; returns their indexes or null if no row has room
+    public int[] allocateAdjacent(SeatMap seats, long legs, int count) {
+        int columns = seats.getColumns();
+        if (count < 1 || count > columns) {
+            return null;
+        }
+        for (int row = 0; row < seats.getRows(); row++) {
+            if (seats.maxFreeInRow(row, legs) < count) {
+                continue;
+            }
+            for (int i = 0; i <= columns - count; i++) {
+                int start = startColumn(i, columns - count);
+                int[] block = claimBlock(seats, legs, row * columns + start, count);
+                if (block != null) {
+                    return block;
+                }
+            }
+        }
+        return null;
+    }
+
+    private int scan(SeatMap seats, long legs, boolean windowsOnly) {
+        int columns = seats.getColumns();
+        for (int row = 0; row < seats.getRows(); row++) {
+            if (seats.maxFreeInRow(row, legs) <= 0) {
+                continue;
+            }
+            for (int column = 0; column < columns; column++) {
+                if (windowsOnly && column != 0 && column != columns - 1) {
+                    continue;
+                }
+                int seat = row * columns + column;
+                if (seats.isFree(seat, legs) && seats.claim(row, column, legs) == ReservationResult.CLAIMED) {
+                    return seat;
+                }
+            }
+        }
+        return -1;
+    }
+
+    // Order in which block start columns are tried: with WINDOW, blocks touching a window come first
+    private int startColumn(int i, int lastStart) {
+        if (policy != Policy.WINDOW || lastStart == 0) {
+            return i;
+        }
+        if (i == 0) {
+            return 0;
+        }
+        if (i == 1) {
+            return lastStart;
+        }
+        return i - 1;
+    }
+
+    private int[] claimBlock(SeatMap seats, long legs, int firstSeat, int count) {
+        for (int i = 0; i < count; i++) {
+            if (!seats.isFree(firstSeat + i, legs)) {
+                return null;
+            }
+        }
+        int[] block = new int[count];
+        for (int i = 0; i < count; i++) {
+            int seat = firstSeat + i;
+            if (seats.claim(seats.rowOf(seat), seats.columnOf(seat), legs) != ReservationResult.CLAIMED) {
+                // Lost a race for part of the block: give back what was taken and try elsewhere
+                for (int j = 0; j < i; j++) {
+                    seats.release(seats.rowOf(block[j]), seats.columnOf(block[j]), legs);
+                }
+                return null;
+            }
+            block[i] = seat;
+        }
+        return block;
+    }
+}
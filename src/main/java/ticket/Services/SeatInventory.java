@@ -0,0 +1,239 @@
+package ticket.Services;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ticket.entities.JournalEntry;
+import ticket.entities.SeatMap;
+import ticket.entities.Ticket;
+import ticket.entities.Train;
+import util.LocalDb;
+import util.Logging;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * Seat occupancy per (train, journey date).
+ *
+ * Partitions live in the memory-mapped SeatStoreFile, and a SeatMap of a partition reads and
+ * books seats directly in the mapped file. The first time a date is looked at, its slot is used
+ * as is if it already holds that date; otherwise it is filled from the date's old JSON snapshot if
+ * there is one, or rebuilt from the tickets booked for that train and date, and then any journal
+ * entries since the last compaction are applied. Only dates from today to booking.advanceDays
+ * ahead (120 by default) can be booked. Partitions for past dates are dropped from memory once a
+ * day, and their slots are reused by later dates. The train's own seat matrix in trains.json
+ * supplies the coach layout.
+ */
+public class SeatInventory {
+    private static final Logger LOGGER = Logging.getLogger(SeatInventory.class);
+
+    public static final String INVENTORY_DIR = LocalDb.path("inventory");
+    public static final int ADVANCE_BOOKING_DAYS = Integer.getInteger("booking.advanceDays", 120);
+
+    private static volatile SeatInventory instance;
+
+    private final File directory;
+    private final ObjectMapper objectMapper;
+    private final SeatStoreFile store;
+    private final Map<String, Partition> partitions = new ConcurrentHashMap<>();
+    // Dated seat changes from the journal, waiting for their partition to be loaded
+    private final Map<String, List<JournalEntry>> pendingReplay = new ConcurrentHashMap<>();
+    private volatile LocalDate lastEviction = LocalDate.MIN;
+
+    private static final class Partition {
+        final String trainId;
+        final LocalDate date;
+        final SeatMap seats;
+
+        Partition(String trainId, LocalDate date, SeatMap seats) {
+            this.trainId = trainId;
+            this.date = date;
+            this.seats = seats;
+        }
+    }
+
+    private SeatInventory(File directory) throws IOException {
+        this.directory = directory;
+        this.objectMapper = new ObjectMapper();
+        this.objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        // One spare slot, so yesterday's partition never shares a slot with the last bookable date
+        this.store = SeatStoreFile.open(directory, ADVANCE_BOOKING_DAYS + 2);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                store.close();
+            } catch (IOException e) {
+                LOGGER.warning(() -> "⚠️ Could not close seat store: " + e.getMessage());
+            }
+        }, "seat-store-close"));
+    }
+
+    public static SeatInventory getInstance() throws IOException {
+        SeatInventory inventory = instance;
+        if (inventory == null) {
+            synchronized (SeatInventory.class) {
+                inventory = instance;
+                if (inventory == null) {
+                    inventory = new SeatInventory(new File(INVENTORY_DIR));
+                    inventory.collectJournal();
+                    instance = inventory;
+                }
+            }
+        }
+        return inventory;
+    }
+
+    public boolean isBookable(LocalDate date) {
+        LocalDate today = LocalDate.now();
+        return !date.isBefore(today) && !date.isAfter(lastBookableDate());
+    }
+
+    public LocalDate lastBookableDate() {
+        return LocalDate.now().plusDays(ADVANCE_BOOKING_DAYS);
+    }
+
+    // Seats of the train on that date, or null if the date is outside the booking window
+    public SeatMap seatsFor(Train train, LocalDate date) throws IOException {
+        if (!isBookable(date)) {
+            return null;
+        }
+        evictPastDatesDaily();
+        return partition(train, date).seats;
+    }
+
+    public int size() {
+        return partitions.size();
+    }
+
+    // Makes every seat change so far durable; runs inside the journal compaction
+    public void force() throws IOException {
+        // Journal entries for partitions nobody has loaded yet must reach the store before the journal is truncated
+        for (String key : new ArrayList<>(pendingReplay.keySet())) {
+            List<JournalEntry> entries = pendingReplay.get(key);
+            if (entries == null || entries.isEmpty()) {
+                continue;
+            }
+            JournalEntry first = entries.get(0);
+            Train train = TrainRepository.getInstance().findById(first.getTrainId());
+            LocalDate date = LocalDate.parse(first.getDateOfTravel());
+            // Past journeys have no slot of their own any more; their tickets are the record
+            if (train != null && isBookable(date)) {
+                partition(train, date);
+            } else {
+                pendingReplay.remove(key);
+            }
+        }
+
+        store.force();
+        LOGGER.fine(() -> "💾 Flushed seat store (" + partitions.size() + " partitions loaded)");
+    }
+
+    private Partition partition(Train train, LocalDate date) throws IOException {
+        String key = key(train.getTrainId(), date);
+        Partition partition = partitions.get(key);
+        if (partition != null) {
+            return partition;
+        }
+        synchronized (this) {
+            partition = partitions.get(key);
+            if (partition == null) {
+                partition = load(train, date);
+                partitions.put(key, partition);
+            }
+        }
+        return partition;
+    }
+
+    private Partition load(Train train, LocalDate date) throws IOException {
+        SeatMap layout = train.getSeats();
+        SeatStoreFile.Slot slot = store.slot(train.getTrainId(), layout.capacity(), date);
+        boolean current = slot.holds(date);
+        if (!current) {
+            slot.reset();
+        }
+        SeatMap seats = new SeatMap(layout.getRows(), layout.getColumns(), slot);
+        if (!current) {
+            File file = fileFor(train.getTrainId(), date);
+            if (file.exists()) {
+                // Snapshot written before the mapped store existed
+                SeatMap saved = objectMapper.readValue(file, SeatMap.class);
+                for (int row = 0; row < seats.getRows(); row++) {
+                    for (int column = 0; column < seats.getColumns(); column++) {
+                        if (saved.isValidSeat(row, column) && saved.isBooked(row, column)) {
+                            seats.setLegMask(row * seats.getColumns() + column,
+                                    saved.legMask(row * saved.getColumns() + column));
+                        }
+                    }
+                }
+            } else {
+                // The tickets sold for this date are the bookings
+                for (Ticket ticket : TicketStore.getInstance().findByTrainAndDate(train.getTrainId(), date.toString())) {
+                    if (seats.isValidSeat(ticket.getSeatRow(), ticket.getSeatColumn())) {
+                        long legs = train.legsBetween(ticket.getSource(), ticket.getDestination());
+                        seats.setBooked(ticket.getSeatRow(), ticket.getSeatColumn(),
+                                legs != 0 ? legs : seats.fullRoute(), true);
+                    }
+                }
+            }
+            slot.assign(date);
+        }
+        // Cells that are only padding in the layout are taken on every date, including slots
+        // filled before the padding was carried over
+        seats.copyRowLengths(layout);
+        if (layout.getLegs() > 0) {
+            seats.bindLegs(layout.getLegs());
+        }
+
+        Partition partition = new Partition(train.getTrainId(), date, seats);
+        List<JournalEntry> entries = pendingReplay.remove(key(train.getTrainId(), date));
+        if (entries != null) {
+            for (JournalEntry entry : entries) {
+                if (seats.isValidSeat(entry.getSeatRow(), entry.getSeatColumn())) {
+                    long legs = entry.getLegs() != null ? entry.getLegs() : seats.fullRoute();
+                    seats.setBooked(entry.getSeatRow(), entry.getSeatColumn(), legs, entry.getSeatBooked());
+                }
+            }
+        }
+        return partition;
+    }
+
+    // Keeps the dated seat changes logged since the last compaction until their partition is needed
+    private void collectJournal() throws IOException {
+        for (JournalEntry logged : BookingJournal.getInstance().readAll()) {
+            if (logged.getSeatBooked() == null || logged.getDateOfTravel() == null) {
+                continue;
+            }
+            for (JournalEntry entry : logged.getSeatChanges()) {
+                pendingReplay.computeIfAbsent(key(entry.getTrainId(), LocalDate.parse(entry.getDateOfTravel())),
+                        key -> new ArrayList<>()).add(entry);
+            }
+        }
+    }
+
+    private void evictPastDatesDaily() {
+        LocalDate today = LocalDate.now();
+        if (!today.isAfter(lastEviction)) {
+            return;
+        }
+        lastEviction = today;
+        for (Partition partition : partitions.values()) {
+            if (partition.date.isBefore(today)) {
+                // Its slot is taken over by the date one booking window later
+                partitions.remove(key(partition.trainId, partition.date), partition);
+            }
+        }
+    }
+
+    private File fileFor(String trainId, LocalDate date) {
+        return new File(new File(directory, trainId), date + ".json");
+    }
+
+    private static String key(String trainId, LocalDate date) {
+        return trainId + "|" + date;
+    }
+}
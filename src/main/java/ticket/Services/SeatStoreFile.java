@@ -0,0 +1,344 @@
+package ticket.Services;
+
+import ticket.entities.LegMaskStore;
+import util.Logging;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+
+/**
+ * Seat state of every train and journey date in one memory-mapped file, inventory/seats.dat.
+ *
+ * Each train has one slot position per day of the booking window, chosen by epoch day modulo the
+ * number of positions, so a date takes over the slot of the date one full window earlier. A slot
+ * is only allocated, at the end of the file, the first time a date at its position is opened. It
+ * is an 8-byte tag naming the date it holds followed by one 8-byte leg mask per seat, so a seat is
+ * at slot + 8 + 8 * seat. The file therefore grows with the (train, date) pairs actually looked
+ * at, 8 + 8 * seats bytes each, and never past trains * (booking window + 2) slots: a 60-seat
+ * train costs 488 bytes per opened date, about 60 KB once every day of a 120-day window is open.
+ * Booking or releasing a seat is a compare-and-set on that word of the mapped buffer; nothing is
+ * ever rewritten. Changed pages are forced to disk every inventory.forceMillis (1000 by default)
+ * and before the journal is compacted, and the journal covers anything newer. A store that was not
+ * closed cleanly may hold claims that never reached the journal, so opening it bumps a generation
+ * that is part of every tag, and each date is then rebuilt once from its tickets and the journal.
+ *
+ * seats.trains lists the slots in file order (train id, seat count and position), so offsets can
+ * be recomputed on start. Slots never cross a 64 MB mapping chunk.
+ */
+public class SeatStoreFile implements Closeable {
+    private static final Logger LOGGER = Logging.getLogger(SeatStoreFile.class);
+
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+    private static final long FORCE_MILLIS = Long.getLong("inventory.forceMillis", 1000);
+    private static final long CHUNK_SIZE = 64L << 20;
+    private static final int HEADER_SIZE = 64;
+    private static final int MAGIC = 0x53454154; // "SEAT"
+    private static final int VERSION = 2;
+    // Read back differently if the file was written with another byte order
+    private static final long BYTE_ORDER_MARK = 0x0102030405060708L;
+    private static final int GENERATION_OFFSET = 24;
+    private static final int OPEN_OFFSET = 28;
+
+    private final FileChannel channel;
+    private final File indexFile;
+    private final int slotsPerTrain;
+    private final Map<String, Slots> slots = new HashMap<>();
+    private final List<MappedByteBuffer> chunks = new ArrayList<>();
+    private final List<AtomicBoolean> dirtyChunks = new ArrayList<>();
+    private final ScheduledExecutorService flusher;
+    private long end = HEADER_SIZE;
+    private int generation;
+
+    // File offsets of one train's slots by position, 0 where no date has been opened yet
+    private static final class Slots {
+        final int seats;
+        final long[] offsets;
+
+        Slots(int seats, int positions) {
+            this.seats = seats;
+            this.offsets = new long[positions];
+        }
+    }
+
+    // One date of one train: a view over its slot in the mapped file
+    public final class Slot implements LegMaskStore {
+        private final ByteBuffer chunk;
+        private final AtomicBoolean dirty;
+        private final int tagOffset;
+        private final int seats;
+        // Upper half of the tag, so slots written before an unclean shutdown never match
+        private final long generation;
+
+        private Slot(ByteBuffer chunk, AtomicBoolean dirty, int tagOffset, int seats, int generation) {
+            this.chunk = chunk;
+            this.dirty = dirty;
+            this.tagOffset = tagOffset;
+            this.seats = seats;
+            this.generation = (long) generation << 32;
+        }
+
+        public boolean holds(LocalDate date) {
+            return (long) LONGS.getVolatile(chunk, tagOffset) == (generation | tag(date));
+        }
+
+        // Empties the slot; the tag is cleared first so a crash part way leaves it unclaimed
+        public void reset() {
+            LONGS.setVolatile(chunk, tagOffset, 0L);
+            for (int seat = 0; seat < seats; seat++) {
+                LONGS.setVolatile(chunk, offsetOf(seat), 0L);
+            }
+            changed();
+        }
+
+        // Marks the slot as holding this date; call once its seats are filled in
+        public void assign(LocalDate date) {
+            LONGS.setVolatile(chunk, tagOffset, generation | tag(date));
+            changed();
+        }
+
+        @Override
+        public int length() {
+            return seats;
+        }
+
+        @Override
+        public long get(int seat) {
+            return (long) LONGS.getVolatile(chunk, offsetOf(seat));
+        }
+
+        @Override
+        public boolean compareAndSet(int seat, long expected, long updated) {
+            if (!LONGS.compareAndSet(chunk, offsetOf(seat), expected, updated)) {
+                return false;
+            }
+            changed();
+            return true;
+        }
+
+        @Override
+        public long getAndSet(int seat, long mask) {
+            long previous = (long) LONGS.getAndSet(chunk, offsetOf(seat), mask);
+            changed();
+            return previous;
+        }
+
+        private int offsetOf(int seat) {
+            if (seat < 0 || seat >= seats) {
+                throw new IndexOutOfBoundsException("Seat " + seat + " of " + seats);
+            }
+            return tagOffset + Long.BYTES + seat * Long.BYTES;
+        }
+
+        private void changed() {
+            if (!dirty.get()) {
+                dirty.set(true);
+            }
+        }
+    }
+
+    private SeatStoreFile(FileChannel channel, File indexFile, int slotsPerTrain) {
+        this.channel = channel;
+        this.indexFile = indexFile;
+        this.slotsPerTrain = slotsPerTrain;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "seat-store-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Opens (or creates) seats.dat and seats.trains in the directory, with one slot per bookable day
+    public static SeatStoreFile open(File directory, int slotsPerTrain) throws IOException {
+        directory.mkdirs();
+        File dataFile = new File(directory, "seats.dat");
+        File indexFile = new File(directory, "seats.trains");
+        FileChannel channel = FileChannel.open(dataFile.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        SeatStoreFile store = new SeatStoreFile(channel, indexFile, slotsPerTrain);
+        try {
+            store.initialize();
+            store.markOpen(true);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        store.flusher.scheduleWithFixedDelay(store::forceQuietly, FORCE_MILLIS, FORCE_MILLIS, TimeUnit.MILLISECONDS);
+        return store;
+    }
+
+    private void initialize() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.nativeOrder());
+        channel.read(header, 0);
+        boolean compatible = header.getInt(0) == MAGIC && header.getInt(4) == VERSION
+                && header.getInt(8) == slotsPerTrain && header.getLong(16) == BYTE_ORDER_MARK;
+        if (!compatible && channel.size() > 0) {
+            // Written with another layout: every partition is rebuilt from the tickets and the journal
+            LOGGER.warning("⚠️ Seat store layout changed; rebuilding seat inventory");
+            channel.truncate(0);
+        }
+        MappedByteBuffer mapped = chunk(0);
+        if (!compatible) {
+            Files.deleteIfExists(indexFile.toPath());
+            mapped.putInt(4, VERSION).putInt(8, slotsPerTrain).putLong(16, BYTE_ORDER_MARK);
+            // Magic last, so a header cut short by a crash is never taken as valid
+            mapped.putInt(0, MAGIC);
+            mapped.force();
+        }
+        generation = mapped.getInt(GENERATION_OFFSET);
+        if (mapped.getInt(OPEN_OFFSET) != 0) {
+            // Last run ended without close(): no slot can be trusted to match the journal
+            LOGGER.info("🔄 Seat store was not closed cleanly; partitions will be rebuilt from tickets");
+            generation++;
+            mapped.putInt(GENERATION_OFFSET, generation);
+        }
+
+        if (indexFile.exists()) {
+            try (BufferedReader reader = Files.newBufferedReader(indexFile.toPath(), StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    int positionStart = line.lastIndexOf(' ');
+                    int seatsStart = positionStart > 0 ? line.lastIndexOf(' ', positionStart - 1) : -1;
+                    if (seatsStart > 0) {
+                        place(line.substring(0, seatsStart),
+                                Integer.parseInt(line.substring(seatsStart + 1, positionStart)),
+                                Integer.parseInt(line.substring(positionStart + 1)));
+                    }
+                }
+            }
+        }
+    }
+
+    // The slot holding (or about to hold) this train's seats on that date
+    public synchronized Slot slot(String trainId, int seats, LocalDate date) throws IOException {
+        int position = Math.floorMod(date.toEpochDay(), slotsPerTrain);
+        Slots trainSlots = slots.get(trainId);
+        long slotStart = trainSlots != null && trainSlots.seats == seats ? trainSlots.offsets[position] : 0;
+        if (slotStart == 0) {
+            // First date at this position, or the coach layout changed: give it a fresh slot
+            slotStart = place(trainId, seats, position);
+            String line = trainId + " " + seats + " " + position + System.lineSeparator();
+            try (FileChannel index = FileChannel.open(indexFile.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                index.write(ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8)));
+                index.force(true);
+            }
+        }
+        int chunkIndex = (int) (slotStart / CHUNK_SIZE);
+        return new Slot(chunk(chunkIndex), dirtyChunks.get(chunkIndex), (int) (slotStart % CHUNK_SIZE), seats,
+                generation);
+    }
+
+    // Slots allocated so far, over all trains
+    public synchronized int slots() {
+        int allocated = 0;
+        for (Slots trainSlots : slots.values()) {
+            for (long offset : trainSlots.offsets) {
+                if (offset != 0) {
+                    allocated++;
+                }
+            }
+        }
+        return allocated;
+    }
+
+    // Writes every changed chunk back to disk
+    public void force() {
+        List<MappedByteBuffer> mapped;
+        List<AtomicBoolean> dirty;
+        synchronized (this) {
+            mapped = new ArrayList<>(chunks);
+            dirty = new ArrayList<>(dirtyChunks);
+        }
+        for (int i = 0; i < mapped.size(); i++) {
+            if (dirty.get(i).getAndSet(false)) {
+                mapped.get(i).force();
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        flusher.shutdownNow();
+        force();
+        markOpen(false);
+        channel.close();
+    }
+
+    private synchronized void markOpen(boolean open) throws IOException {
+        MappedByteBuffer header = chunk(0);
+        header.putInt(OPEN_OFFSET, open ? 1 : 0);
+        header.force();
+    }
+
+    private void forceQuietly() {
+        try {
+            force();
+        } catch (RuntimeException e) {
+            LOGGER.warning(() -> "⚠️ Could not flush seat store: " + e.getMessage());
+        }
+    }
+
+    // Appends a slot for the train's position and returns its offset; a new seat count drops the old slots
+    private long place(String trainId, int seats, int position) throws IOException {
+        long size = slotSize(seats);
+        if (size > CHUNK_SIZE) {
+            throw new IOException("Train " + trainId + " has too many seats for the seat store: " + seats);
+        }
+        if (position < 0 || position >= slotsPerTrain) {
+            throw new IOException("Slot position " + position + " of train " + trainId + " is outside 0.."
+                    + (slotsPerTrain - 1));
+        }
+        if (end % CHUNK_SIZE + size > CHUNK_SIZE) {
+            end = (end / CHUNK_SIZE + 1) * CHUNK_SIZE;
+        }
+        Slots trainSlots = slots.get(trainId);
+        if (trainSlots == null || trainSlots.seats != seats) {
+            trainSlots = new Slots(seats, slotsPerTrain);
+            slots.put(trainId, trainSlots);
+        }
+        long offset = end;
+        trainSlots.offsets[position] = offset;
+        end += size;
+        return offset;
+    }
+
+    private MappedByteBuffer chunk(int index) throws IOException {
+        while (chunks.size() <= index) {
+            // Mapping past the end grows the file; the untouched part stays sparse on disk
+            MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_WRITE, chunks.size() * CHUNK_SIZE, CHUNK_SIZE);
+            chunk.order(ByteOrder.nativeOrder());
+            chunks.add(chunk);
+            dirtyChunks.add(new AtomicBoolean());
+        }
+        return chunks.get(index);
+    }
+
+    private static long slotSize(int seats) {
+        return Long.BYTES + (long) seats * Long.BYTES;
+    }
+
+    private static long tag(LocalDate date) {
+        return date.toEpochDay() + 1;
+    }
+}
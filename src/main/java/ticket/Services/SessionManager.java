@@ -0,0 +1,101 @@
+package ticket.Services;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Login sessions, so a password is checked with BCrypt once per login rather than per request.
+ *
+ * A successful login gets a random 256-bit token. After that a request is authenticated with one
+ * hash lookup of that token. A session that goes unused for session.idleMinutes (30 by default)
+ * expires, and expired sessions are swept out as new ones are created.
+ */
+public class SessionManager {
+    private static final long IDLE_TIMEOUT_MILLIS =
+            TimeUnit.MINUTES.toMillis(Long.getLong("session.idleMinutes", 30));
+    private static final int SWEEP_INTERVAL = 256;
+
+    private static volatile SessionManager instance;
+
+    private final SecureRandom random = new SecureRandom();
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private int createdSinceSweep;
+
+    private static final class Session {
+        final String userId;
+        volatile long lastAccess;
+
+        Session(String userId, long lastAccess) {
+            this.userId = userId;
+            this.lastAccess = lastAccess;
+        }
+    }
+
+    private SessionManager() {}
+
+    public static SessionManager getInstance() {
+        SessionManager manager = instance;
+        if (manager == null) {
+            synchronized (SessionManager.class) {
+                manager = instance;
+                if (manager == null) {
+                    manager = new SessionManager();
+                    instance = manager;
+                }
+            }
+        }
+        return manager;
+    }
+
+    // Call only after the user's password has been verified
+    public String createSession(String userId) {
+        byte[] bytes = new byte[32];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        long now = System.currentTimeMillis();
+        sessions.put(token, new Session(userId, now));
+        sweepOccasionally(now);
+        return token;
+    }
+
+    // User id of a live session, refreshing its idle timer; null if the token is unknown or expired
+    public String resolve(String token) {
+        if (token == null) {
+            return null;
+        }
+        Session session = sessions.get(token);
+        if (session == null) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        if (now - session.lastAccess > IDLE_TIMEOUT_MILLIS) {
+            sessions.remove(token, session);
+            return null;
+        }
+        session.lastAccess = now;
+        return session.userId;
+    }
+
+    public void invalidate(String token) {
+        if (token != null) {
+            sessions.remove(token);
+        }
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    private void sweepOccasionally(long now) {
+        synchronized (this) {
+            if (++createdSinceSweep < SWEEP_INTERVAL) {
+                return;
+            }
+            createdSinceSweep = 0;
+        }
+        sessions.values().removeIf(session -> now - session.lastAccess > IDLE_TIMEOUT_MILLIS);
+    }
+}
@@ -0,0 +1,118 @@
+package ticket.Services;
+
+import ticket.entities.Ticket;
+import ticket.entities.User;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Global index of every booked ticket.
+ *
+ * Tickets are keyed by ticketId, with secondary indexes by owner and by train + travel date, so
+ * cancelling, a support-desk lookup by id and "list my bookings" never scan unrelated tickets.
+ * It is built from the users in {@link UserRepository} and kept current by the booking paths.
+ */
+public class TicketStore {
+    private static volatile TicketStore instance;
+
+    private final Map<String, Ticket> ticketsById = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, Ticket>> ticketsByUser = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, Ticket>> ticketsByTrainAndDate = new ConcurrentHashMap<>();
+
+    private TicketStore() {}
+
+    public static TicketStore getInstance() throws IOException {
+        TicketStore store = instance;
+        if (store == null) {
+            synchronized (TicketStore.class) {
+                store = instance;
+                if (store == null) {
+                    store = new TicketStore();
+                    for (User user : UserRepository.getInstance().getUsers()) {
+                        for (Ticket ticket : user.getTicketsBooked()) {
+                            store.add(ticket);
+                        }
+                    }
+                    instance = store;
+                }
+            }
+        }
+        return store;
+    }
+
+    public void add(Ticket ticket) {
+        ticketsById.put(ticket.getTicketId(), ticket);
+        ticketsByUser.computeIfAbsent(ticket.getUserId(), id -> new ConcurrentHashMap<>())
+                .put(ticket.getTicketId(), ticket);
+        ticketsByTrainAndDate.computeIfAbsent(trainDateKey(ticket.getTrainId(), ticket.getDateOfTravel()),
+                key -> new ConcurrentHashMap<>()).put(ticket.getTicketId(), ticket);
+    }
+
+    // Returns the removed ticket, or null if there was none with this id
+    public Ticket remove(String ticketId) {
+        Ticket ticket = ticketsById.remove(ticketId);
+        if (ticket == null) {
+            return null;
+        }
+        unindex(ticket);
+        return ticket;
+    }
+
+    // Removes the ticket only if it belongs to the user; of two racing callers only one gets it back
+    public Ticket removeOwned(String ticketId, String userId) {
+        Ticket ticket = ticketId != null ? ticketsById.get(ticketId) : null;
+        if (ticket == null || !userId.equals(ticket.getUserId()) || !ticketsById.remove(ticketId, ticket)) {
+            return null;
+        }
+        unindex(ticket);
+        return ticket;
+    }
+
+    private void unindex(Ticket ticket) {
+        String ticketId = ticket.getTicketId();
+        Map<String, Ticket> userTickets = ticketsByUser.get(ticket.getUserId());
+        if (userTickets != null) {
+            userTickets.remove(ticketId);
+        }
+        Map<String, Ticket> trainTickets = ticketsByTrainAndDate.get(
+                trainDateKey(ticket.getTrainId(), ticket.getDateOfTravel()));
+        if (trainTickets != null) {
+            trainTickets.remove(ticketId);
+        }
+    }
+
+    public Ticket findById(String ticketId) {
+        return ticketId != null ? ticketsById.get(ticketId) : null;
+    }
+
+    public List<Ticket> findByUser(String userId) {
+        return sorted(ticketsByUser.get(userId));
+    }
+
+    public List<Ticket> findByTrainAndDate(String trainId, String dateOfTravel) {
+        return sorted(ticketsByTrainAndDate.get(trainDateKey(trainId, dateOfTravel)));
+    }
+
+    public int size() {
+        return ticketsById.size();
+    }
+
+    private static List<Ticket> sorted(Map<String, Ticket> tickets) {
+        if (tickets == null || tickets.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Ticket> result = new ArrayList<>(tickets.values());
+        result.sort(Comparator.comparing(Ticket::getTicketId));
+        return result;
+    }
+
+    private static String trainDateKey(String trainId, String dateOfTravel) {
+        return trainId + "|" + dateOfTravel;
+    }
+}
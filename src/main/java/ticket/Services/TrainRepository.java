@@ -0,0 +1,246 @@
+package ticket.Services;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ticket.entities.JournalEntry;
+import ticket.entities.SeatMap;
+import ticket.entities.Train;
+import util.AtomicFileWriter;
+import util.LocalDb;
+import util.Logging;
+import util.StreamingJsonLoader;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Process-wide, in-memory copy of trains.json.
+ *
+ * The file is parsed once and every TrainService shares the same list. Before serving a read
+ * the repository compares the file's last-modified time and size with what it loaded, and only
+ * re-parses when the file was changed by someone else. A {@link RouteIndex} is built alongside
+ * the list so searches never have to scan the whole fleet.
+ */
+public class TrainRepository {
+    private static final Logger LOGGER = Logging.getLogger(TrainRepository.class);
+
+    public static final String TRAIN_DB_PATH = LocalDb.path("trains.json");
+
+    private static volatile TrainRepository instance;
+
+    private final File trainsFile;
+    private final ObjectMapper objectMapper;
+    private volatile List<Train> trainList = new ArrayList<>();
+    private final Map<String, Train> trainsById = new ConcurrentHashMap<>();
+    private final RouteIndex routeIndex = new RouteIndex();
+    private long loadedModified = -1;
+    private long loadedLength = -1;
+    // Bumped whenever trains are loaded or replaced, so derived caches know to rebuild; reindex
+    // runs outside the repository lock, so the bump must be atomic
+    private final AtomicLong version = new AtomicLong();
+
+    private TrainRepository(File trainsFile) {
+        this.trainsFile = trainsFile;
+        this.objectMapper = new ObjectMapper();
+        this.objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    }
+
+    public static TrainRepository getInstance() throws IOException {
+        TrainRepository repository = instance;
+        if (repository == null) {
+            synchronized (TrainRepository.class) {
+                repository = instance;
+                if (repository == null) {
+                    repository = new TrainRepository(new File(TRAIN_DB_PATH));
+                    repository.load();
+                    instance = repository;
+                }
+            }
+        }
+        return repository;
+    }
+
+    // Returns the cached trains, re-reading the file only if it changed on disk
+    public List<Train> getTrains() throws IOException {
+        if (isStale()) {
+            synchronized (this) {
+                if (isStale()) {
+                    LOGGER.info("🔄 trains.json changed on disk, reloading...");
+                    load();
+                }
+            }
+        }
+        return trainList;
+    }
+
+    // Station → trains index, rebuilt on every (re)load and kept current by TrainService.updateTrain
+    public RouteIndex getRouteIndex() throws IOException {
+        getTrains();
+        return routeIndex;
+    }
+
+    public Train findById(String trainId) throws IOException {
+        getTrains();
+        return trainId != null ? trainsById.get(trainId) : null;
+    }
+
+    // Called when a train in the list is replaced or added, to keep the lookups current
+    public void reindex(Train train) {
+        trainsById.put(train.getTrainId(), train);
+        routeIndex.update(train);
+        version.incrementAndGet();
+    }
+
+    public long getVersion() throws IOException {
+        getTrains();
+        return version.get();
+    }
+
+    public synchronized void save() throws IOException {
+        AtomicFileWriter.writeJson(objectMapper, trainsFile, trainList);
+        if (BinarySnapshot.ENABLED) {
+            BinarySnapshot.writeTrains(BinarySnapshot.fileFor(trainsFile), trainList);
+        }
+        rememberFileStamp();
+    }
+
+    private boolean isStale() {
+        return trainsFile.lastModified() != loadedModified || trainsFile.length() != loadedLength;
+    }
+
+    // Package-private so the persistence benchmarks can time a cold load
+    synchronized void load() throws IOException {
+        LOGGER.fine(() -> "🔍 Loading trains from: " + trainsFile.getAbsolutePath());
+        LOGGER.fine(() -> "📁 File exists: " + trainsFile.exists());
+
+        if (!trainsFile.exists()) {
+            LOGGER.info("Creating trains.json file with default data...");
+            trainsFile.getParentFile().mkdirs();
+            trainsFile.createNewFile();
+            createDefaultTrains();
+        }
+
+        List<Train> loaded;
+        try {
+            loaded = readTrains();
+            LOGGER.info("✅ Successfully loaded " + loaded.size() + " trains");
+
+            // If file was corrupted and we loaded 0 trains, create default data
+            if (loaded.isEmpty()) {
+                LOGGER.info("File appears to be corrupted. Creating default trains...");
+                createDefaultTrains();
+                loaded = readTrains();
+            }
+        } catch (Exception e) {
+            LOGGER.warning(() -> "❌ Error loading trains: " + e.getMessage());
+            LOGGER.info("🔄 Creating fresh trains.json file...");
+            createDefaultTrains();
+            loaded = readTrains();
+            LOGGER.info("✅ Created fresh trains data with " + loaded.size() + " trains");
+        }
+
+        replayJournal(loaded);
+
+        // Copy-on-write list so searches can iterate while a booking replaces a train
+        trainList = new CopyOnWriteArrayList<>(loaded);
+        trainsById.clear();
+        for (Train train : trainList) {
+            trainsById.put(train.getTrainId(), train);
+        }
+        routeIndex.rebuild(trainList);
+        rememberFileStamp();
+        version.incrementAndGet();
+    }
+
+    // Re-applies seat changes logged since trains.json was last written
+    private void replayJournal(List<Train> trains) throws IOException {
+        Map<String, Train> trainsById = new HashMap<>();
+        for (Train train : trains) {
+            trainsById.put(train.getTrainId(), train);
+        }
+
+        int replayed = 0;
+        for (JournalEntry entry : BookingJournal.getInstance().readAll()) {
+            Boolean booked = entry.getSeatBooked();
+            // Dated bookings belong to the SeatInventory partitions, not to the train's own matrix
+            if (booked == null || entry.getDateOfTravel() != null) {
+                continue;
+            }
+            Train train = trainsById.get(entry.getTrainId());
+            if (train != null && train.getSeats().isValidSeat(entry.getSeatRow(), entry.getSeatColumn())) {
+                SeatMap seats = train.getSeats();
+                long legs = entry.getLegs() != null ? entry.getLegs() : seats.fullRoute();
+                seats.setBooked(entry.getSeatRow(), entry.getSeatColumn(), legs, booked);
+                replayed++;
+            }
+        }
+        if (replayed > 0) {
+            LOGGER.info("🔁 Replayed " + replayed + " seat changes from the booking journal");
+        }
+    }
+
+    private List<Train> readTrains() throws IOException {
+        List<Train> trains = new ArrayList<>();
+        File snapshot = BinarySnapshot.fileFor(trainsFile);
+        if (BinarySnapshot.ENABLED && BinarySnapshot.isCurrent(snapshot, trainsFile)) {
+            try {
+                BinarySnapshot.readTrains(snapshot, trains::add);
+                return trains;
+            } catch (IOException | RuntimeException e) {
+                // trains.json is written with every snapshot, so it is never behind it
+                LOGGER.warning(() -> "⚠️ Ignoring unreadable " + snapshot.getName() + ": " + e.getMessage());
+                trains.clear();
+            }
+        }
+        StreamingJsonLoader.forEach(objectMapper, trainsFile, Train.class, trains::add);
+        return trains;
+    }
+
+    private void rememberFileStamp() {
+        loadedModified = trainsFile.lastModified();
+        loadedLength = trainsFile.length();
+    }
+
+    private void createDefaultTrains() throws IOException {
+        List<Train> defaultTrains = new ArrayList<>();
+
+        // Train 1: Guntur to Vijayawada
+        Map<String, String> stationTimes1 = new LinkedHashMap<>();
+        stationTimes1.put("Guntur", "08:00:00");
+        stationTimes1.put("Mangalagiri", "08:25:00");
+        stationTimes1.put("Vijayawada", "08:45:00");
+
+        SeatMap seats1 = new SeatMap(4, 6);
+
+        Train train1 = new Train("GNT_VZD_001", 11021, seats1, stationTimes1,
+                Arrays.asList("Guntur", "Mangalagiri", "Vijayawada"));
+
+        // Train 2: Vijayawada to Guntur
+        Map<String, String> stationTimes2 = new LinkedHashMap<>();
+        stationTimes2.put("Vijayawada", "18:00:00");
+        stationTimes2.put("Mangalagiri", "18:20:00");
+        stationTimes2.put("Guntur", "18:45:00");
+
+        SeatMap seats2 = new SeatMap(4, 6);
+
+        Train train2 = new Train("VZD_GNT_002", 11022, seats2, stationTimes2,
+                Arrays.asList("Vijayawada", "Mangalagiri", "Guntur"));
+
+        defaultTrains.add(train1);
+        defaultTrains.add(train2);
+
+        AtomicFileWriter.writeJson(objectMapper, trainsFile, defaultTrains);
+        LOGGER.info("✅ Created default trains data with 2 trains");
+
+        // Print what was created for verification
+        LOGGER.info("📋 Created trains:");
+        for (Train train : defaultTrains) {
+            LOGGER.info(() -> "   - " + train.getTrainId() + ": " + train.getStations());
+        }
+    }
+}
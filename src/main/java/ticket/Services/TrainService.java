@@ -1,120 +1,103 @@
 package ticket.Services;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.DeserializationFeature;
+import ticket.entities.Itinerary;
+import ticket.entities.JournalEntry;
+import ticket.entities.ReservationResult;
+import ticket.entities.SeatMap;
+import ticket.entities.StationRegistry;
+import ticket.entities.Timetable;
 import ticket.entities.Train;
+import util.Logging;
 
-import java.io.File;
 import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalTime;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 public class TrainService {
-    private List<Train> trainList;
-    private ObjectMapper objectMapper;
-    private static final String TRAIN_DB_PATH = "src/main/resources/localDb/trains.json";
+    private static final Logger LOGGER = Logging.getLogger(TrainService.class);
 
-    public TrainService() throws IOException {
-        // Configure ObjectMapper to ignore unknown fields
-        objectMapper = new ObjectMapper();
-        objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    public enum SortOrder {
+        DEPARTURE,
+        DURATION
+    }
 
-        File trainsFile = new File(TRAIN_DB_PATH);
+    private final TrainRepository trainRepository;
 
-        System.out.println("🔍 Loading trains from: " + trainsFile.getAbsolutePath());
-        System.out.println("📁 File exists: " + trainsFile.exists());
+    public TrainService() throws IOException {
+        // All services share one in-memory copy of trains.json
+        trainRepository = TrainRepository.getInstance();
+    }
 
-        if (!trainsFile.exists()) {
-            System.out.println("Creating trains.json file with default data...");
-            trainsFile.getParentFile().mkdirs();
-            trainsFile.createNewFile();
-            createDefaultTrains(trainsFile);
-        }
+    public List<Train> searchTrains(String source, String destination) {
+        LOGGER.fine(() -> "🔍 Searching trains from: '" + source + "' to '" + destination + "'");
 
         try {
-            trainList = objectMapper.readValue(trainsFile, new TypeReference<List<Train>>() {});
-            System.out.println("✅ Successfully loaded " + trainList.size() + " trains");
-
-            // If file was corrupted and we loaded 0 trains, create default data
-            if (trainList.isEmpty()) {
-                System.out.println("File appears to be corrupted. Creating default trains...");
-                createDefaultTrains(trainsFile);
-                trainList = objectMapper.readValue(trainsFile, new TypeReference<List<Train>>() {});
+            // Only the trains that stop at both stations are touched
+            List<Train> result = trainRepository.getRouteIndex().findTrains(source, destination);
+
+            for (Train train : result) {
+                LOGGER.fine(() -> "✅ Train " + train.getTrainId() + " is valid for route " + source + " → " + destination);
             }
 
+            LOGGER.fine(() -> "🎯 Found " + result.size() + " trains matching the route");
+            return result;
         } catch (Exception e) {
-            System.out.println("❌ Error loading trains: " + e.getMessage());
-            System.out.println("🔄 Creating fresh trains.json file...");
-            createDefaultTrains(trainsFile);
-            trainList = objectMapper.readValue(trainsFile, new TypeReference<List<Train>>() {});
-            System.out.println("✅ Created fresh trains data with " + trainList.size() + " trains");
+            LOGGER.warning(() -> "❌ Error searching trains: " + e.getMessage());
+            return new ArrayList<>();
         }
     }
 
-    public List<Train> searchTrains(String source, String destination) {
-        System.out.println("🔍 Searching trains from: '" + source + "' to '" + destination + "'");
-
-        String src = source.trim().toLowerCase();
-        String dest = destination.trim().toLowerCase();
-
-        System.out.println("📊 Total trains available: " + trainList.size());
-
-        // Debug: print all trains and their stations
-        for (Train train : trainList) {
-            System.out.println("🚂 Train: " + train.getTrainId() + " - Stations: " + train.getStations());
+    // Direct trains leaving source at or after departAfter and reaching destination by arriveBefore
+    // (either bound may be null), sorted by the parsed timetables rather than the time strings
+    public List<Train> searchTrains(String source, String destination, LocalTime departAfter,
+                                    LocalTime arriveBefore, SortOrder order) {
+        StationRegistry registry = StationRegistry.getInstance();
+        int sourceId = registry.findId(source);
+        int destinationId = registry.findId(destination);
+        int earliest = departAfter != null ? departAfter.toSecondOfDay() : 0;
+        int latest = arriveBefore != null ? arriveBefore.toSecondOfDay() : Integer.MAX_VALUE;
+
+        List<Train> result = new ArrayList<>();
+        for (Train train : searchTrains(source, destination)) {
+            Timetable timetable = train.getTimetable();
+            if (timetable == null) {
+                continue;
+            }
+            int from = train.stopIndexOf(sourceId);
+            int to = train.stopIndexOf(destinationId);
+            if (timetable.departureAt(from) >= earliest && timetable.arrivalAt(to) <= latest) {
+                result.add(train);
+            }
         }
 
-        List<Train> result = trainList.stream()
-                .filter(train -> validTrain(train, src, dest))
-                .collect(Collectors.toList());
-
-        System.out.println("🎯 Found " + result.size() + " trains matching the route");
+        Comparator<Train> comparator = order == SortOrder.DURATION
+                ? Comparator.comparingInt(train -> train.getTimetable().duration(
+                        train.stopIndexOf(sourceId), train.stopIndexOf(destinationId)))
+                : Comparator.comparingInt(train -> train.getTimetable().departureAt(train.stopIndexOf(sourceId)));
+        result.sort(comparator);
+        LOGGER.fine(() -> "⏱️ " + result.size() + " trains within the time window");
         return result;
     }
 
-    private boolean validTrain(Train train, String source, String destination) {
+    // Direct and connecting journeys, fastest first
+    public List<Itinerary> planJourneys(String source, String destination, LocalDate date) {
         try {
-            if (train.getStations() == null || train.getStations().isEmpty()) {
-                System.out.println("❌ Train " + train.getTrainId() + " has no stations");
-                return false;
-            }
-
-            List<String> stationOrderLower = train.getStations().stream()
-                    .map(String::toLowerCase)
-                    .collect(Collectors.toList());
-
-            System.out.println("🔎 Checking train " + train.getTrainId() + ": " + stationOrderLower);
-
-            int sourceIndex = stationOrderLower.indexOf(source);
-            int destinationIndex = stationOrderLower.indexOf(destination);
-
-            System.out.println("   Source '" + source + "' at index: " + sourceIndex);
-            System.out.println("   Destination '" + destination + "' at index: " + destinationIndex);
-
-            boolean stationsExist = (sourceIndex != -1 && destinationIndex != -1);
-            boolean correctOrder = (sourceIndex < destinationIndex);
-
-            boolean isValid = stationsExist && correctOrder;
-
-            if (isValid) {
-                System.out.println("✅ Train " + train.getTrainId() + " is valid for route " + source + " → " + destination);
-            } else if (!stationsExist) {
-                System.out.println("❌ Train " + train.getTrainId() + " doesn't have both stations");
-            } else {
-                System.out.println("❌ Train " + train.getTrainId() + " has wrong station order");
-            }
-
-            return isValid;
-        } catch (Exception e) {
-            System.out.println("❌ Error validating train " + train.getTrainId() + ": " + e.getMessage());
-            return false;
+            List<Itinerary> itineraries = JourneyPlanner.getInstance().plan(source, destination, date);
+            LOGGER.fine(() -> "🧭 Found " + itineraries.size() + " journeys from " + source + " to " + destination);
+            return itineraries;
+        } catch (IOException e) {
+            LOGGER.warning(() -> "❌ Error planning journey: " + e.getMessage());
+            return new ArrayList<>();
         }
     }
 
     public void updateTrain(Train updatedTrain) {
         try {
-            System.out.println("🔄 Updating train: " + updatedTrain.getTrainId());
+            List<Train> trainList = trainRepository.getTrains();
+            LOGGER.fine(() -> "🔄 Updating train: " + updatedTrain.getTrainId());
 
             // Find the train in the list
             Optional<Train> existingTrain = trainList.stream()
@@ -122,123 +105,120 @@ public class TrainService {
                     .findFirst();
 
             if (existingTrain.isPresent()) {
-                // Remove the old train
-                trainList.remove(existingTrain.get());
-                // Add the updated train
-                trainList.add(updatedTrain);
+                // Seat changes are made in place on the shared train, so only a different
+                // instance has to be swapped in (a single atomic set on the copy-on-write list)
+                if (existingTrain.get() != updatedTrain) {
+                    trainList.set(trainList.indexOf(existingTrain.get()), updatedTrain);
+                    trainRepository.reindex(updatedTrain);
+                }
 
                 // Save to file
                 saveTrainListToFile();
-                System.out.println("✅ Successfully updated train: " + updatedTrain.getTrainId());
+                LOGGER.fine(() -> "✅ Successfully updated train: " + updatedTrain.getTrainId());
             } else {
-                System.out.println("❌ Train not found for update: " + updatedTrain.getTrainId());
+                LOGGER.warning(() -> "❌ Train not found for update: " + updatedTrain.getTrainId());
                 // Add as new train if not found
                 trainList.add(updatedTrain);
+                trainRepository.reindex(updatedTrain);
                 saveTrainListToFile();
-                System.out.println("✅ Added new train: " + updatedTrain.getTrainId());
+                LOGGER.info(() -> "✅ Added new train: " + updatedTrain.getTrainId());
             }
         } catch (Exception e) {
-            System.out.println("❌ Error updating train: " + e.getMessage());
-            e.printStackTrace();
+            LOGGER.log(Level.WARNING, e, () -> "❌ Error updating train: " + e.getMessage());
         }
     }
-    public boolean updateSpecificTrainSeat(String trainId, int row, int column, int newStatus) {
+    // Claims (newStatus 1) or releases (0) a seat for the train's whole route on that date and journals
+    // it; true only if this call changed the seat
+    public boolean updateSpecificTrainSeat(String trainId, LocalDate date, int row, int column, int newStatus) {
         try {
-            System.out.println("🔄 Updating train " + trainId + " seat [" + row + "][" + column + "] to " + newStatus);
-
-            // Find the train
-            Optional<Train> trainToUpdate = trainList.stream()
-                    .filter(train -> train.getTrainId().equals(trainId))
-                    .findFirst();
-
-            if (trainToUpdate.isPresent()) {
-                Train train = trainToUpdate.get();
-                List<List<Integer>> seats = train.getSeats();
-
-                if (row >= 0 && row < seats.size() && column >= 0 && column < seats.get(row).size()) {
-                    System.out.println("📊 Before: Seat [" + row + "][" + column + "] = " + seats.get(row).get(column));
-
-                    // Update the seat
-                    seats.get(row).set(column, newStatus);
-                    train.setSeats(seats);
+            LOGGER.fine(() -> "🔄 Updating train " + trainId + " seat [" + row + "][" + column + "] on " + date
+                    + " to " + newStatus);
 
-                    System.out.println("📊 After: Seat [" + row + "][" + column + "] = " + seats.get(row).get(column));
-
-                    // Save to file
-                    saveTrainListToFile();
-                    System.out.println("✅ Successfully updated seat in database");
-                    return true;
-                } else {
-                    System.out.println("❌ Invalid seat coordinates");
-                }
+            Train train = findTrain(trainId);
+            if (train == null) {
+                LOGGER.warning(() -> "❌ Train not found: " + trainId);
+                return false;
+            }
+            long legs = train.getSeats().fullRoute();
+            ReservationResult result = applySeatChange(train, date, row, column, legs, newStatus != 0);
+
+            if (result == null) {
+                LOGGER.warning("❌ Bookings are open from today to " + SeatInventory.getInstance().lastBookableDate());
+            } else if (result == ReservationResult.CLAIMED || result == ReservationResult.RELEASED) {
+                // Log the change instead of rewriting the seat store
+                recordSeatChange(trainId, date, row, column, legs, newStatus != 0);
+                LOGGER.fine("✅ Successfully updated seat in database");
+                return true;
+            } else if (result == ReservationResult.OUT_OF_RANGE) {
+                LOGGER.warning("❌ Invalid seat coordinates");
             } else {
-                System.out.println("❌ Train not found: " + trainId);
+                // Someone else got there first (or the seat was already in that state)
+                LOGGER.fine(() -> "📊 Seat [" + row + "][" + column + "]: " + result);
             }
         } catch (Exception e) {
-            System.out.println("❌ Error updating seat: " + e.getMessage());
+            LOGGER.warning(() -> "❌ Error updating seat: " + e.getMessage());
         }
         return false;
     }
 
+    // Claims or releases the given legs of a seat in that date's inventory only (the caller logs it);
+    // null if the date can't be booked
+    public ReservationResult applySeatChange(Train train, LocalDate date, int row, int column, long legs,
+                                             boolean booked) throws IOException {
+        SeatMap seats = SeatInventory.getInstance().seatsFor(train, date);
+        if (seats == null) {
+            return null;
+        }
+        return booked ? seats.claim(row, column, legs) : seats.release(row, column, legs);
+    }
+
+    // Seats still free for the whole way from source to destination on that date;
+    // -1 if the train doesn't run that way or the date can't be booked
+    public int freeSeats(String trainId, String source, String destination, LocalDate date) {
+        Train train = findTrain(trainId);
+        if (train == null) {
+            return -1;
+        }
+        long legs = train.legsBetween(source, destination);
+        try {
+            SeatMap seats = SeatInventory.getInstance().seatsFor(train, date);
+            return legs != 0 && seats != null ? seats.freeSeats(legs) : -1;
+        } catch (IOException e) {
+            LOGGER.warning(() -> "❌ Error reading seat inventory: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    // Appends one dated seat change to the booking journal; the seat store is only forced on compaction
+    public void recordSeatChange(String trainId, LocalDate date, int row, int column, long legs, boolean booked)
+            throws IOException {
+        BookingJournal.getInstance().append(JournalEntry.seatChanged(trainId, date, row, column, legs, booked));
+    }
+
     private void saveTrainListToFile() {
         try {
-            File trainsFile = new File(TRAIN_DB_PATH);
-            objectMapper.writeValue(trainsFile, trainList);
-            System.out.println("💾 Saved trains data to file");
+            trainRepository.save();
+            LOGGER.fine("💾 Saved trains data to file");
         } catch (IOException e) {
-            System.out.println("❌ Error saving trains: " + e.getMessage());
+            LOGGER.warning(() -> "❌ Error saving trains: " + e.getMessage());
         }
     }
 
-    private void createDefaultTrains(File trainsFile) throws IOException {
-        List<Train> defaultTrains = new ArrayList<>();
-
-        // Train 1: Guntur to Vijayawada
-        Map<String, String> stationTimes1 = new HashMap<>();
-        stationTimes1.put("Guntur", "08:00:00");
-        stationTimes1.put("Mangalagiri", "08:25:00");
-        stationTimes1.put("Vijayawada", "08:45:00");
-
-        List<List<Integer>> seats1 = Arrays.asList(
-                Arrays.asList(0, 0, 0, 0, 0, 0),
-                Arrays.asList(0, 0, 0, 0, 0, 0),
-                Arrays.asList(0, 0, 0, 0, 0, 0),
-                Arrays.asList(0, 0, 0, 0, 0, 0)
-        );
-
-        Train train1 = new Train("GNT_VZD_001", 11021, seats1, stationTimes1,
-                Arrays.asList("Guntur", "Mangalagiri", "Vijayawada"));
-
-        // Train 2: Vijayawada to Guntur
-        Map<String, String> stationTimes2 = new HashMap<>();
-        stationTimes2.put("Vijayawada", "18:00:00");
-        stationTimes2.put("Mangalagiri", "18:20:00");
-        stationTimes2.put("Guntur", "18:45:00");
-
-        List<List<Integer>> seats2 = Arrays.asList(
-                Arrays.asList(0, 0, 0, 0, 0, 0),
-                Arrays.asList(0, 0, 0, 0, 0, 0),
-                Arrays.asList(0, 0, 0, 0, 0, 0),
-                Arrays.asList(0, 0, 0, 0, 0, 0)
-        );
-
-        Train train2 = new Train("VZD_GNT_002", 11022, seats2, stationTimes2,
-                Arrays.asList("Vijayawada", "Mangalagiri", "Guntur"));
-
-        defaultTrains.add(train1);
-        defaultTrains.add(train2);
-
-        objectMapper.writeValue(trainsFile, defaultTrains);
-        System.out.println("✅ Created default trains data with 2 trains");
-
-        // Print what was created for verification
-        System.out.println("📋 Created trains:");
-        for (Train train : defaultTrains) {
-            System.out.println("   - " + train.getTrainId() + ": " + train.getStations());
+    public Train findTrain(String trainId) {
+        try {
+            return trainRepository.findById(trainId);
+        } catch (IOException e) {
+            LOGGER.warning(() -> "❌ Error reading trains: " + e.getMessage());
+            return null;
         }
     }
 
     public List<Train> getTrainList() {
-        return trainList != null ? trainList : new ArrayList<>();
+        try {
+            return trainRepository.getTrains();
+        } catch (IOException e) {
+            LOGGER.warning(() -> "❌ Error reading trains: " + e.getMessage());
+            return new ArrayList<>();
+        }
     }
 }
\ No newline at end of file
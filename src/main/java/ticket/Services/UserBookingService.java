@@ -1,365 +1,577 @@
 package ticket.Services;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import ticket.entities.Itinerary;
+import ticket.entities.JournalEntry;
+import ticket.entities.PassengerSeat;
+import ticket.entities.ReservationResult;
+import ticket.entities.SeatMap;
 import ticket.entities.Train;
 import ticket.entities.Ticket;
 import ticket.entities.User;
-import util.UserServiceUtil;
+import util.Logging;
+import util.TicketIdGenerator;
 
-import java.io.File;
 import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Logger;
 
 public class UserBookingService {
-    private User user;
-    private List<User> userList;
-    private ObjectMapper objectMapper = new ObjectMapper();
-    private static final String USERS_PATH = "src/main/resources/localDb/users.json";
-
-    // Constructor for logged-in user
-    public UserBookingService(User user1) throws IOException {
-        loadUsers(); // Load users first
-
-        this.user = user1;
-
-        // Try to find the user in the database and verify credentials
-        Optional<User> existingUser = userList.stream()
-                .filter(u -> u.getName().equals(user1.getName()))
-                .findFirst();
-
-        if (existingUser.isPresent()) {
-            User dbUser = existingUser.get();
-            // Check password against the stored hashed password
-            if (UserServiceUtil.checkPassword(user1.getPassword(), dbUser.getHashedPassword())) {
-                // Login successful - use the user from database (with correct UUID)
-                this.user = dbUser;
-                System.out.println("✅ Login successful for: " + user.getName());
-            } else {
-                System.out.println("❌ Login failed: Incorrect password for user: " + user1.getName());
-                this.user = null;
-            }
-        } else {
-            System.out.println("❌ Login failed: User not found: " + user1.getName());
-            this.user = null;
-        }
+    private static final Logger LOGGER = Logging.getLogger(UserBookingService.class);
+
+    // User of the current session, refreshed from the token by currentUser()
+    private volatile User user;
+    private volatile String sessionToken;
+    private final UserRepository userRepository;
+    private final TicketStore ticketStore;
+    private final TrainService trainService;
+    private final SeatInventory seatInventory;
+    // Tickets of this service's latest successful booking, for the UI to show
+    private volatile List<Ticket> lastBookedTickets = Collections.emptyList();
+
+    // Starts logged out; log in with login(), which checks the password on the credential pool
+    public UserBookingService() throws IOException {
+        this.trainService = new TrainService();
+        this.userRepository = UserRepository.getInstance();
+        this.ticketStore = TicketStore.getInstance();
+        this.seatInventory = SeatInventory.getInstance();
     }
 
-    // Constructor for non-logged-in user
-    public UserBookingService() throws IOException {
-        loadUsers();
+    // Picks up a session started elsewhere; false if the token is unknown or has expired
+    public boolean resumeSession(String token) {
+        this.sessionToken = token;
+        return currentUser() != null;
     }
 
-    public List<User> loadUsers() throws IOException {
-        File usersFile = new File(USERS_PATH);
+    public String getSessionToken() {
+        return sessionToken;
+    }
 
-        System.out.println("📁 Loading users from: " + usersFile.getAbsolutePath());
+    public void logout() {
+        SessionManager.getInstance().invalidate(sessionToken);
+        sessionToken = null;
+        user = null;
+    }
 
-        if (!usersFile.exists()) {
-            System.out.println("Creating users.json file...");
-            usersFile.getParentFile().mkdirs();
-            usersFile.createNewFile();
-            objectMapper.writeValue(usersFile, new ArrayList<User>());
-            return new ArrayList<>();
-        }
+    private void startSession(User sessionUser) {
+        SessionManager.getInstance().invalidate(sessionToken);
+        sessionToken = SessionManager.getInstance().createSession(sessionUser.getUserId());
+        user = sessionUser;
+    }
 
-        if (usersFile.length() == 0) {
-            objectMapper.writeValue(usersFile, new ArrayList<User>());
-            return new ArrayList<>();
+    // The logged-in user, from a token lookup rather than another password check; null once the session has expired
+    private User currentUser() {
+        String token = sessionToken;
+        if (token == null) {
+            return null;
         }
+        String userId = SessionManager.getInstance().resolve(token);
+        User sessionUser = userId != null ? userRepository.findById(userId) : null;
+        if (sessionUser == null) {
+            LOGGER.warning("⌛ Your session has expired. Please log in again.");
+            sessionToken = null;
+        }
+        user = sessionUser;
+        return sessionUser;
+    }
 
-        try {
-            // Configure ObjectMapper to ignore unknown properties
-            objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-
-            List<User> usersList = objectMapper.readValue(usersFile, new TypeReference<List<User>>() {});
-            this.userList = usersList;
-            System.out.println("✅ Loaded " + usersList.size() + " users");
-            return usersList;
-        } catch (Exception e) {
-            System.out.println("❌ Error loading users: " + e.getMessage());
-            System.out.println("🔄 Creating fresh users.json file...");
+    public List<User> loadUsers() {
+        return new ArrayList<>(userRepository.getUsers());
+    }
 
-            // Create fresh file
-            objectMapper.writeValue(usersFile, new ArrayList<User>());
+    public Boolean loginUser() {
+        return currentUser() != null;
+    }
 
-            List<User> emptyList = new ArrayList<>();
-            this.userList = emptyList;
-            return emptyList;
+    // Checks the password on the credential pool; completes with true once this service is logged in
+    public CompletableFuture<Boolean> login(String userName, String password) {
+        User dbUser = userRepository.findByName(userName);
+        if (dbUser == null) {
+            LOGGER.warning(() -> "❌ Login failed: User not found: " + userName);
+            return CompletableFuture.completedFuture(false);
         }
+        return CredentialService.getInstance()
+                .checkPassword(userName, password, dbUser.getHashedPassword())
+                .thenApply(matches -> {
+                    if (matches) {
+                        startSession(dbUser);
+                        LOGGER.fine(() -> "✅ Login successful for: " + dbUser.getName());
+                    } else {
+                        LOGGER.warning(() -> "❌ Login failed: Incorrect password for user: " + userName);
+                    }
+                    return matches;
+                });
     }
 
-    public Boolean loginUser() {
-        return user != null;
+    // Hashes the password on the credential pool, then registers the user
+    public CompletableFuture<Boolean> signUp(String userName, String password) {
+        if (userRepository.findByName(userName) != null) {
+            LOGGER.warning(() -> "❌ User already exists: " + userName);
+            return CompletableFuture.completedFuture(false);
+        }
+        return CredentialService.getInstance().hashPassword(password)
+                .thenApply(hashed -> signUp(new User(userName, null, hashed, new ArrayList<>(),
+                        UUID.randomUUID().toString())));
     }
 
     public Boolean signUp(User user1) {
         try {
-            // Check if user already exists
-            boolean userExists = userList.stream()
-                    .anyMatch(u -> u.getName().equals(user1.getName()));
-
-            if (userExists) {
-                System.out.println("❌ User already exists: " + user1.getName());
+            // Claims the name and logs the registration in one step
+            if (!userRepository.register(user1)) {
+                LOGGER.warning(() -> "❌ User already exists: " + user1.getName());
                 return false;
             }
-
-            userList.add(user1);
-            saveUserListToFile();
-            System.out.println("✅ User registered: " + user1.getName());
+            compactJournalIfNeeded();
+            LOGGER.fine(() -> "✅ User registered: " + user1.getName());
 
             // Auto-login after signup
-            this.user = user1;
+            startSession(user1);
             return true;
         } catch (IOException ex) {
-            System.out.println("❌ Error during signup: " + ex.getMessage());
+            LOGGER.warning(() -> "❌ Error during signup: " + ex.getMessage());
             return false;
         }
     }
 
-    private void saveUserListToFile() throws IOException {
-        File usersFile = new File(USERS_PATH);
-        objectMapper.writeValue(usersFile, userList);
-    }
-
-    public void fetchBookings() {
+    // Folds the journal into fresh trains.json / users.json snapshots once it grows long enough.
+    // A failure here loses nothing: the journal is only truncated after both snapshots are written.
+    private void compactJournalIfNeeded() {
         try {
-            if (user == null) {
-                System.out.println("❌ No user logged in. Please login first.");
-                return;
+            BookingJournal journal = BookingJournal.getInstance();
+            if (journal.needsCompaction()) {
+                journal.compact(() -> {
+                    TrainRepository.getInstance().save();
+                    userRepository.save();
+                    seatInventory.force();
+                });
             }
+        } catch (IOException e) {
+            LOGGER.warning(() -> "⚠️ Could not compact booking journal: " + e.getMessage());
+        }
+    }
 
-            // Always use the user from our current state
-            System.out.println("\n=== Bookings for " + user.getName() + " ===");
-            user.printTickets();
-
-        } catch (Exception e) {
-            System.out.println("❌ Error fetching bookings: " + e.getMessage());
+    // The logged-in user's tickets, straight from the per-user ticket index; empty if nobody is logged in
+    public List<Ticket> fetchBookings() {
+        User user = currentUser();
+        if (user == null) {
+            LOGGER.warning("❌ No user logged in. Please login first.");
+            return Collections.emptyList();
         }
+        return ticketStore.findByUser(user.getUserId());
+    }
+
+    // When the ticket's train leaves its boarding station, from the live train; null if unknown
+    public String departureTime(Ticket ticket) {
+        // Tickets only reference their train; look up the live train for the schedule
+        Train train = trainService.findTrain(ticket.getTrainId());
+        return train != null && train.getStationTimes() != null ? train.getStationTimes().get(ticket.getSource()) : null;
+    }
+
+    public List<Ticket> getLastBookedTickets() {
+        return lastBookedTickets;
     }
 
     public Boolean cancelBooking(String ticketId) {
+        User user = currentUser();
         if (user == null) {
-            System.out.println("❌ No user logged in");
+            LOGGER.warning("❌ No user logged in");
             return false;
         }
 
         if (ticketId == null || ticketId.isEmpty()) {
-            System.out.println("❌ Ticket ID cannot be empty");
+            LOGGER.warning("❌ Ticket ID cannot be empty");
             return false;
         }
 
-        // Find the ticket to cancel
-        Optional<Ticket> ticketToCancel = user.getTicketsBooked().stream()
-                .filter(ticket -> ticket.getTicketId().equals(ticketId))
-                .findFirst();
-
-        if (ticketToCancel.isPresent()) {
-            Ticket ticket = ticketToCancel.get();
-            String trainId = ticket.getTrain().getTrainId();
-            int seatRow = ticket.getSeatRow();
-            int seatColumn = ticket.getSeatColumn();
-
-            System.out.println("🎫 Canceling ticket: " + ticketId);
-            System.out.println("🚂 Train: " + trainId);
-            System.out.println("💺 Seat: Row " + seatRow + ", Column " + seatColumn);
+        // Take the ticket out of the store first: of two cancels racing on it only one gets it,
+        // so its seat is released and journaled exactly once
+        Ticket ticket = ticketStore.removeOwned(ticketId, user.getUserId());
+        if (ticket == null) {
+            LOGGER.warning(() -> "❌ No ticket found with ID " + ticketId);
+            return false;
+        }
 
-            try {
-                // STEP 1: Update the train database FIRST
-                TrainService trainService = new TrainService();
-                boolean seatUpdated = trainService.updateSpecificTrainSeat(trainId, seatRow, seatColumn, 0);
+        String trainId = ticket.getTrainId();
+        int seatRow = ticket.getSeatRow();
+        int seatColumn = ticket.getSeatColumn();
 
-                if (!seatUpdated) {
-                    System.out.println("❌ Failed to update seat in database");
-                    return false;
-                }
+        LOGGER.fine(() -> "🎫 Canceling ticket: " + ticketId);
+        LOGGER.fine(() -> "🚂 Train: " + trainId);
+        LOGGER.fine(() -> "💺 Seat: Row " + seatRow + ", Column " + seatColumn);
 
-                // STEP 2: Remove the ticket from user's bookings
-                boolean removed = user.getTicketsBooked().removeIf(t -> t.getTicketId().equals(ticketId));
+        // Only the legs this ticket travels are freed; the rest of the seat may be sold to others
+        Train train = trainService.findTrain(trainId);
+        long routeLegs = train != null ? train.legsBetween(ticket.getSource(), ticket.getDestination()) : 0;
+        long legs = routeLegs != 0 ? routeLegs : train != null ? train.getSeats().fullRoute() : -1L;
 
-                if (removed) {
-                    // STEP 3: Update the user in the userList and save
-                    Optional<User> userInList = userList.stream()
-                            .filter(u -> u.getUserId().equals(user.getUserId()))
-                            .findFirst();
+        // Commit the seat release as one journal record, then apply it before a compaction can drop that record
+        try {
+            BookingJournal.getInstance().commit(JournalEntry.cancellation(ticket, legs), () -> {
+                releaseSeat(train, ticket, legs);
+                user.getTicketsBooked().remove(ticket);
+            });
+        } catch (IOException e) {
+            // Nothing was journaled or released, so the ticket is still valid
+            ticketStore.add(ticket);
+            LOGGER.warning(() -> "❌ Error during cancellation: " + e.getMessage());
+            return false;
+        }
+        compactJournalIfNeeded();
 
-                    if (userInList.isPresent()) {
-                        userInList.get().setTicketsBooked(user.getTicketsBooked());
-                        saveUserListToFile();
+        LOGGER.fine(() -> "✅ Ticket " + ticketId + " canceled and seat freed");
+        return true;
+    }
 
-                        System.out.println("✅ SUCCESS: Ticket canceled and seat freed in database!");
-                        return true;
-                    }
-                }
-            } catch (IOException e) {
-                System.out.println("❌ Error during cancellation: " + e.getMessage());
-                return false;
+    // Frees the ticket's legs in that day's inventory; journeys already in the past have nothing to free
+    private void releaseSeat(Train train, Ticket ticket, long legs) {
+        if (train == null) {
+            return;
+        }
+        try {
+            SeatMap seats = seatInventory.seatsFor(train, LocalDate.parse(ticket.getDateOfTravel()));
+            if (seats != null) {
+                seats.release(ticket.getSeatRow(), ticket.getSeatColumn(), legs);
             }
-        } else {
-            System.out.println("❌ No ticket found with ID " + ticketId);
+        } catch (IOException e) {
+            // The cancellation is committed; the partition is rebuilt from the journal on next load
+            LOGGER.warning(() -> "⚠️ Could not update seat inventory: " + e.getMessage());
         }
-        return false;
+    }
+
+    // Lookup by ticket id alone, without knowing the owner (e.g. for a support desk)
+    public Ticket findTicket(String ticketId) {
+        return ticketStore.findById(ticketId);
     }
 
     public List<Train> getTrains(String source, String destination) {
-        try {
-            TrainService trainService = new TrainService();
-            return trainService.searchTrains(source, destination);
-        } catch (IOException ex) {
-            System.out.println("❌ Error searching trains: " + ex.getMessage());
-            return new ArrayList<>();
-        }
+        return trainService.searchTrains(source, destination);
+    }
+
+    public List<Train> getTrains(String source, String destination, LocalTime departAfter,
+                                 LocalTime arriveBefore, TrainService.SortOrder order) {
+        return trainService.searchTrains(source, destination, departAfter, arriveBefore, order);
+    }
+
+    public List<Itinerary> planJourneys(String source, String destination, LocalDate travelDate) {
+        return trainService.planJourneys(source, destination, travelDate);
+    }
+
+    // Seats for the default travel date (tomorrow)
+    public SeatMap fetchSeats(Train train) {
+        return fetchSeats(train, defaultTravelDate());
     }
 
-    public List<List<Integer>> fetchSeats(Train train) {
+    public SeatMap fetchSeats(Train train, LocalDate travelDate) {
         if (train == null) {
-            System.out.println("❌ No train selected");
-            return new ArrayList<>();
+            LOGGER.warning("❌ No train selected");
+            return new SeatMap(0, 0);
+        }
+
+        // Always get FRESH data from the shared repository, not the cached train object
+        Train currentTrain = trainService.findTrain(train.getTrainId());
+
+        if (currentTrain == null) {
+            LOGGER.warning("❌ Train not found in database");
+            return new SeatMap(0, 0);
         }
 
         try {
-            // Always get FRESH data from the database, not the cached train object
-            TrainService trainService = new TrainService();
-            List<Train> currentTrains = trainService.getTrainList();
-
-            // Find the current train with updated seat data
-            Optional<Train> currentTrain = currentTrains.stream()
-                    .filter(t -> t.getTrainId().equals(train.getTrainId()))
-                    .findFirst();
-
-            if (currentTrain.isPresent()) {
-                System.out.println("🔄 Fetching updated seat data for: " + train.getTrainId());
-                return currentTrain.get().getSeats();
-            } else {
-                System.out.println("❌ Train not found in database");
-                return train.getSeats(); // fallback to old data
+            SeatMap seats = seatInventory.seatsFor(currentTrain, travelDate);
+            if (seats == null) {
+                LOGGER.warning(() -> "❌ Bookings are open from today to " + seatInventory.lastBookableDate());
+                return new SeatMap(0, 0);
             }
+            LOGGER.fine(() -> "🔄 Fetching updated seat data for: " + train.getTrainId() + " on " + travelDate);
+            return seats;
         } catch (IOException e) {
-            System.out.println("❌ Error fetching updated seats: " + e.getMessage());
-            return train.getSeats(); // fallback to old data
+            LOGGER.warning(() -> "❌ Error reading seat inventory: " + e.getMessage());
+            return new SeatMap(0, 0);
         }
     }
 
-    public Boolean bookTrainSeat(Train train, int row, int column) {
-        try {
-            if (user == null) {
-                System.out.println("❌ Please login first!");
-                return false;
-            }
+    // True if seats can be booked on that date: today up to booking.advanceDays ahead
+    public boolean isBookable(LocalDate travelDate) {
+        return seatInventory.isBookable(travelDate);
+    }
 
-            TrainService trainService = new TrainService();
+    public LocalDate lastBookableDate() {
+        return seatInventory.lastBookableDate();
+    }
 
-            // Get FRESH train data from database, not the cached object
-            List<Train> currentTrains = trainService.getTrainList();
-            Optional<Train> currentTrain = currentTrains.stream()
-                    .filter(t -> t.getTrainId().equals(train.getTrainId()))
-                    .findFirst();
+    // Seats free for the whole way from source to destination on that date, or -1
+    public int countFreeSeats(Train train, String source, String destination, LocalDate travelDate) {
+        return trainService.freeSeats(train.getTrainId(), source, destination, travelDate);
+    }
 
-            if (!currentTrain.isPresent()) {
-                System.out.println("❌ Train not found in database");
-                return false;
-            }
+    private static LocalDate defaultTravelDate() {
+        return LocalDate.now().plusDays(1);
+    }
 
-            // Use the fresh train data from database
-            Train freshTrain = currentTrain.get();
-            List<List<Integer>> seats = freshTrain.getSeats();
+    // Books the seat for the train's whole route
+    public Boolean bookTrainSeat(Train train, int row, int column) {
+        List<String> stations = train.getStations();
+        if (stations.isEmpty()) {
+            LOGGER.warning("❌ Train has no route");
+            return false;
+        }
+        return bookTrainSeat(train, stations.get(0), stations.get(stations.size() - 1), row, column);
+    }
 
-            if (row < 0 || row >= seats.size() || column < 0 || column >= seats.get(row).size()) {
-                System.out.println("❌ Invalid seat selection. Please choose row 0-3 and column 0-5");
-                return false;
-            }
+    // Books the seat only for the legs between source and destination, travelling tomorrow
+    public Boolean bookTrainSeat(Train train, String source, String destination, int row, int column) {
+        return bookTrainSeat(train, source, destination, defaultTravelDate(), row, column);
+    }
 
-            // Check availability using FRESH data
-            if (seats.get(row).get(column) == 0) {
-                System.out.println("✅ Seat is available. Booking now...");
+    public Boolean bookTrainSeat(Train train, String source, String destination, LocalDate travelDate,
+                                 int row, int column) {
+        if (currentUser() == null) {
+            LOGGER.warning("❌ Please login first!");
+            return false;
+        }
 
-                // Book the seat in the train
-                seats.get(row).set(column, 1);
-                freshTrain.setSeats(seats);
-                trainService.updateTrain(freshTrain);
+        // Get FRESH train data from the shared repository, not the cached object
+        Train freshTrain = trainService.findTrain(train.getTrainId());
+        long legs = freshTrain != null ? freshTrain.legsBetween(source, destination) : 0;
+        SeatMap seats = seatsForBooking(freshTrain, source, destination, legs, travelDate);
+        if (seats == null) {
+            return false;
+        }
+
+        // Claim the seat's legs with a compare-and-set, so two concurrent bookers can never both get them
+        ReservationResult result = seats.claim(row, column, legs);
 
-                // Create and save the ticket for the user
-                boolean ticketCreated = createAndSaveTicket(freshTrain, row, column);
+        switch (result) {
+            case CLAIMED:
+                LOGGER.fine("✅ Seat is available. Booking now...");
+
+                // Create the ticket and commit it together with the seat as one journal record
+                boolean ticketCreated = createAndSaveTicket(freshTrain, source, destination, travelDate, legs, row, column);
 
                 if (ticketCreated) {
-                    System.out.println("✅ Seat booked successfully at row " + row + ", column " + column);
+                    LOGGER.fine(() -> "✅ Seat booked successfully at row " + row + ", column " + column);
                     return true;
                 } else {
-                    // Rollback seat booking if ticket creation failed
-                    seats.get(row).set(column, 0);
-                    freshTrain.setSeats(seats);
-                    trainService.updateTrain(freshTrain);
-                    System.out.println("❌ Booking failed: Could not create ticket");
+                    // Nothing was committed, so only the in-memory claim has to be undone
+                    seats.release(row, column, legs);
+                    LOGGER.warning("❌ Booking failed: Could not create ticket");
                     return false;
                 }
-            } else {
-                System.out.println("❌ Seat is already booked. Please choose another seat.");
-                System.out.println("💡 Current seat status in database: " + seats.get(row).get(column));
+            case ALREADY_TAKEN:
+                LOGGER.warning("❌ Seat is already booked on part of this journey. Please choose another seat.");
                 return false;
-            }
-        } catch (IOException ex) {
-            System.out.println("❌ Error booking seat: " + ex.getMessage());
+            default:
+                LOGGER.warning(() -> "❌ Invalid seat selection. Please choose row 0-" + (seats.getRows() - 1)
+                        + " and column 0-" + (seats.getColumns() - 1));
+                return false;
+        }
+    }
+
+    // Lets the allocator pick and claim the best free seat, so a filling train never needs retries
+    public Boolean bookBestAvailableSeat(Train train, String source, String destination, LocalDate travelDate,
+                                         SeatAllocator.Policy policy) {
+        if (currentUser() == null) {
+            LOGGER.warning("❌ Please login first!");
+            return false;
+        }
+
+        Train freshTrain = trainService.findTrain(train.getTrainId());
+        long legs = freshTrain != null ? freshTrain.legsBetween(source, destination) : 0;
+        SeatMap seats = seatsForBooking(freshTrain, source, destination, legs, travelDate);
+        if (seats == null) {
+            return false;
+        }
+
+        int seat = new SeatAllocator(policy).allocate(seats, legs);
+        if (seat < 0) {
+            LOGGER.warning(() -> "❌ No seats left from " + source + " to " + destination + " on " + travelDate);
             return false;
         }
+
+        int row = seats.rowOf(seat);
+        int column = seats.columnOf(seat);
+        if (createAndSaveTicket(freshTrain, source, destination, travelDate, legs, row, column)) {
+            LOGGER.fine(() -> "✅ Seat booked successfully at row " + row + ", column " + column);
+            return true;
+        }
+        seats.release(row, column, legs);
+        LOGGER.warning("❌ Booking failed: Could not create ticket");
+        return false;
     }
 
-    private boolean createAndSaveTicket(Train train, int row, int column) {
-        try {
-            // Get source and destination from train route
-            List<String> stations = train.getStations();
-            String source = stations.get(0);
-            String destination = stations.get(stations.size() - 1);
-
-            // Create new ticket WITH SEAT INFORMATION
-            String ticketId = "TKT_" + System.currentTimeMillis();
-            String travelDate = java.time.LocalDate.now().plusDays(1).toString();
-
-            Ticket newTicket = new Ticket(
-                    ticketId,
-                    user.getUserId(),
-                    source,
-                    destination,
-                    travelDate,
-                    train,
-                    row,      // Add seat row
-                    column    // Add seat column
-            );
-
-            // Add ticket to current user's bookings
-            if (user.getTicketsBooked() == null) {
-                user.setTicketsBooked(new ArrayList<>());
+    // Books every passenger's seat or none of them; the group is committed as one journal record
+    public List<Ticket> bookGroup(Train train, String source, String destination, LocalDate travelDate,
+                                  List<PassengerSeat> passengers) {
+        if (currentUser() == null) {
+            LOGGER.warning("❌ Please login first!");
+            return Collections.emptyList();
+        }
+        if (passengers.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Train freshTrain = trainService.findTrain(train.getTrainId());
+        long legs = freshTrain != null ? freshTrain.legsBetween(source, destination) : 0;
+        SeatMap seats = seatsForBooking(freshTrain, source, destination, legs, travelDate);
+        if (seats == null) {
+            return Collections.emptyList();
+        }
+
+        // Claim every seat first; the first one that fails undoes all claims made so far
+        List<PassengerSeat> claimed = new ArrayList<>(passengers.size());
+        for (PassengerSeat passenger : passengers) {
+            ReservationResult result = seats.claim(passenger.getSeatRow(), passenger.getSeatColumn(), legs);
+            if (result != ReservationResult.CLAIMED) {
+                LOGGER.warning(() -> "❌ Seat " + passenger.getSeatRow() + "-" + passenger.getSeatColumn()
+                        + " is not available (" + result + "); nothing was booked");
+                releaseAll(seats, claimed, legs);
+                return Collections.emptyList();
             }
-            user.getTicketsBooked().add(newTicket);
+            claimed.add(passenger);
+        }
+
+        List<Ticket> tickets = createAndSaveTickets(freshTrain, source, destination, travelDate, legs, claimed);
+        if (tickets == null) {
+            releaseAll(seats, claimed, legs);
+            LOGGER.warning("❌ Group booking failed: Could not create tickets");
+            return Collections.emptyList();
+        }
+        LOGGER.fine(() -> "✅ Booked " + tickets.size() + " seats");
+        return tickets;
+    }
+
+    // Finds adjacent seats in one row for the whole party and books them as one group
+    public List<Ticket> bookSeatsTogether(Train train, String source, String destination, LocalDate travelDate,
+                                          List<String> passengerNames, SeatAllocator.Policy policy) {
+        if (currentUser() == null) {
+            LOGGER.warning("❌ Please login first!");
+            return Collections.emptyList();
+        }
+        if (passengerNames.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Train freshTrain = trainService.findTrain(train.getTrainId());
+        long legs = freshTrain != null ? freshTrain.legsBetween(source, destination) : 0;
+        SeatMap seats = seatsForBooking(freshTrain, source, destination, legs, travelDate);
+        if (seats == null) {
+            return Collections.emptyList();
+        }
+
+        int[] block = new SeatAllocator(policy).allocateAdjacent(seats, legs, passengerNames.size());
+        if (block == null) {
+            LOGGER.warning(() -> "❌ No " + passengerNames.size() + " seats together from " + source
+                    + " to " + destination + " on " + travelDate);
+            return Collections.emptyList();
+        }
 
-            // Update the user in userList and save to file
-            Optional<User> userInList = userList.stream()
-                    .filter(u -> u.getUserId().equals(user.getUserId()))
-                    .findFirst();
+        List<PassengerSeat> claimed = new ArrayList<>(block.length);
+        for (int i = 0; i < block.length; i++) {
+            claimed.add(new PassengerSeat(passengerNames.get(i), seats.rowOf(block[i]), seats.columnOf(block[i])));
+        }
+
+        List<Ticket> tickets = createAndSaveTickets(freshTrain, source, destination, travelDate, legs, claimed);
+        if (tickets == null) {
+            releaseAll(seats, claimed, legs);
+            LOGGER.warning("❌ Group booking failed: Could not create tickets");
+            return Collections.emptyList();
+        }
+        LOGGER.fine(() -> "✅ Booked " + tickets.size() + " seats together in row " + seats.rowOf(block[0]));
+        return tickets;
+    }
 
-            if (userInList.isPresent()) {
-                userInList.get().setTicketsBooked(user.getTicketsBooked());
+    // The day's seats if the journey can be booked, otherwise null after telling the user why
+    private SeatMap seatsForBooking(Train freshTrain, String source, String destination, long legs,
+                                    LocalDate travelDate) {
+        if (freshTrain == null) {
+            LOGGER.warning("❌ Train not found in database");
+            return null;
+        }
+        if (legs == 0) {
+            LOGGER.warning(() -> "❌ Train " + freshTrain.getTrainId() + " doesn't run from " + source + " to " + destination);
+            return null;
+        }
+        try {
+            SeatMap seats = seatInventory.seatsFor(freshTrain, travelDate);
+            if (seats == null) {
+                LOGGER.warning(() -> "❌ Bookings are open from today to " + seatInventory.lastBookableDate());
             }
+            return seats;
+        } catch (IOException e) {
+            LOGGER.warning(() -> "❌ Error reading seat inventory: " + e.getMessage());
+            return null;
+        }
+    }
 
-            saveUserListToFile();
+    private static void releaseAll(SeatMap seats, List<PassengerSeat> claimed, long legs) {
+        for (PassengerSeat passenger : claimed) {
+            seats.release(passenger.getSeatRow(), passenger.getSeatColumn(), legs);
+        }
+    }
 
-            System.out.println("🎫 Ticket created: " + newTicket.getTicketInfo());
-            return true;
+    private boolean createAndSaveTicket(Train train, String source, String destination, LocalDate travelDate,
+                                        long legs, int row, int column) {
+        return createAndSaveTickets(train, source, destination, travelDate, legs,
+                Collections.singletonList(new PassengerSeat(null, row, column))) != null;
+    }
+
+    // Returns the new tickets, or null if nothing could be committed
+    private List<Ticket> createAndSaveTickets(Train train, String source, String destination, LocalDate travelDate,
+                                              long legs, List<PassengerSeat> passengers) {
+        try {
+            List<Ticket> newTickets = new ArrayList<>(passengers.size());
+            for (PassengerSeat passenger : passengers) {
+                // Create new ticket WITH SEAT INFORMATION
+                Ticket newTicket = new Ticket(
+                        TicketIdGenerator.getInstance().nextTicketId(),
+                        user.getUserId(),
+                        source,
+                        destination,
+                        travelDate.toString(),
+                        train.getTrainId(),
+                        train.getTrainNo(),
+                        passenger.getSeatRow(),
+                        passenger.getSeatColumn()
+                );
+                newTicket.setPassengerName(passenger.getPassengerName());
+                newTickets.add(newTicket);
+            }
+
+            // Seat claims and tickets are durable together, or not at all
+            JournalEntry entry = newTickets.size() == 1
+                    ? JournalEntry.booking(newTickets.get(0), legs)
+                    : JournalEntry.groupBooking(newTickets, legs);
+            User owner = user;
+            BookingJournal.getInstance().commit(entry, () -> {
+                for (Ticket newTicket : newTickets) {
+                    owner.getTicketsBooked().add(newTicket);
+                    ticketStore.add(newTicket);
+                }
+            });
+            for (Ticket newTicket : newTickets) {
+                LOGGER.fine(() -> "🎫 Ticket created: " + newTicket.getTicketInfo());
+            }
+            lastBookedTickets = Collections.unmodifiableList(newTickets);
+            compactJournalIfNeeded();
+            return newTickets;
         } catch (Exception e) {
-            System.out.println("❌ Error creating ticket: " + e.getMessage());
-            return false;
+            LOGGER.warning(() -> "❌ Error creating ticket: " + e.getMessage());
+            return null;
         }
     }
 
     // Helper method to check if user is logged in
     public boolean isUserLoggedIn() {
-        return user != null;
+        return currentUser() != null;
     }
 
     // Helper method to get current username
     public String getCurrentUsername() {
+        User user = currentUser();
         return user != null ? user.getName() : "No user logged in";
     }
 }
\ No newline at end of file
@@ -0,0 +1,224 @@
+package ticket.Services;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ticket.entities.JournalEntry;
+import ticket.entities.Ticket;
+import ticket.entities.User;
+import util.AtomicFileWriter;
+import util.LocalDb;
+import util.Logging;
+import util.StreamingJsonLoader;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * Process-wide user store with O(1) lookup by user name and by user id.
+ *
+ * users.json plus the booking journal are read once into two concurrent maps. Signups go
+ * through {@link #register}, which claims the name and logs the registration so the maps and
+ * the persisted state never disagree.
+ */
+public class UserRepository {
+    private static final Logger LOGGER = Logging.getLogger(UserRepository.class);
+
+    public static final String USERS_PATH = LocalDb.path("users.json");
+
+    private static volatile UserRepository instance;
+
+    private final File usersFile;
+    private final ObjectMapper objectMapper;
+    private final Map<String, User> usersByName = new ConcurrentHashMap<>();
+    private final Map<String, User> usersById = new ConcurrentHashMap<>();
+
+    private UserRepository(File usersFile) {
+        this.usersFile = usersFile;
+        this.objectMapper = new ObjectMapper();
+        this.objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    }
+
+    public static UserRepository getInstance() throws IOException {
+        UserRepository repository = instance;
+        if (repository == null) {
+            synchronized (UserRepository.class) {
+                repository = instance;
+                if (repository == null) {
+                    repository = new UserRepository(new File(USERS_PATH));
+                    repository.load();
+                    instance = repository;
+                }
+            }
+        }
+        return repository;
+    }
+
+    public User findByName(String name) {
+        return name != null ? usersByName.get(name) : null;
+    }
+
+    public User findById(String userId) {
+        return userId != null ? usersById.get(userId) : null;
+    }
+
+    public Collection<User> getUsers() {
+        return usersById.values();
+    }
+
+    public int size() {
+        return usersById.size();
+    }
+
+    // Returns false if the name is taken; the name is claimed atomically so racing signups can't both win
+    public boolean register(User user) throws IOException {
+        if (usersByName.putIfAbsent(user.getName(), user) != null) {
+            return false;
+        }
+        try {
+            BookingJournal.getInstance().commit(JournalEntry.userRegistered(user),
+                    () -> usersById.put(user.getUserId(), user));
+        } catch (IOException e) {
+            usersByName.remove(user.getName(), user);
+            throw e;
+        }
+        return true;
+    }
+
+    public void save() throws IOException {
+        List<User> users = new ArrayList<>(usersById.values());
+        AtomicFileWriter.writeJson(objectMapper, usersFile, users);
+        if (BinarySnapshot.ENABLED) {
+            BinarySnapshot.writeUsers(BinarySnapshot.fileFor(usersFile), users);
+        }
+    }
+
+    // Package-private so the persistence benchmarks can time a cold load
+    synchronized void load() throws IOException {
+        LOGGER.fine(() -> "📁 Loading users from: " + usersFile.getAbsolutePath());
+
+        if (!usersFile.exists()) {
+            LOGGER.info("Creating users.json file...");
+            usersFile.getParentFile().mkdirs();
+            AtomicFileWriter.writeJson(objectMapper, usersFile, new ArrayList<User>());
+        }
+
+        if (usersFile.length() == 0) {
+            AtomicFileWriter.writeJson(objectMapper, usersFile, new ArrayList<User>());
+        }
+
+        usersByName.clear();
+        usersById.clear();
+        try {
+            // Users go into the indexes as they are read, without a full list in between
+            if (!readSnapshot()) {
+                StreamingJsonLoader.forEach(objectMapper, usersFile, User.class, this::index);
+            }
+        } catch (Exception e) {
+            LOGGER.warning(() -> "❌ Error loading users: " + e.getMessage());
+            LOGGER.info("🔄 Creating fresh users.json file...");
+
+            // Create fresh file
+            usersByName.clear();
+            usersById.clear();
+            AtomicFileWriter.writeJson(objectMapper, usersFile, new ArrayList<User>());
+        }
+        replayJournal();
+        LOGGER.info(() -> "✅ Loaded " + usersById.size() + " users");
+
+        migrateLegacyTickets();
+    }
+
+    // True if the users came from a current binary snapshot
+    private boolean readSnapshot() {
+        File snapshot = BinarySnapshot.fileFor(usersFile);
+        if (!BinarySnapshot.ENABLED || !BinarySnapshot.isCurrent(snapshot, usersFile)) {
+            return false;
+        }
+        try {
+            BinarySnapshot.readUsers(snapshot, this::index);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            // users.json is written with every snapshot, so it is never behind it
+            LOGGER.warning(() -> "⚠️ Ignoring unreadable " + snapshot.getName() + ": " + e.getMessage());
+            usersByName.clear();
+            usersById.clear();
+            return false;
+        }
+    }
+
+    // Rewrites users.json once if any ticket still embeds a full copy of its train
+    private void migrateLegacyTickets() throws IOException {
+        long legacyTickets = usersById.values().stream()
+                .flatMap(user -> user.getTicketsBooked().stream())
+                .filter(Ticket::isLegacyFormat)
+                .count();
+        if (legacyTickets > 0) {
+            long before = usersFile.length();
+            save();
+            LOGGER.info(() -> "🗜️ Migrated " + legacyTickets + " tickets to the compact format ("
+                    + before + " → " + usersFile.length() + " bytes)");
+        }
+    }
+
+    private void index(User user) {
+        if (user.getTicketsBooked() == null) {
+            user.setTicketsBooked(new ArrayList<>());
+        }
+        usersByName.put(user.getName(), user);
+        usersById.put(user.getUserId(), user);
+    }
+
+    // Re-applies registrations and ticket changes logged since users.json was last written
+    private void replayJournal() throws IOException {
+        for (JournalEntry entry : BookingJournal.getInstance().readAll()) {
+            switch (entry.getType()) {
+                case USER_REGISTERED:
+                    if (!usersById.containsKey(entry.getUserId())) {
+                        index(entry.getUser());
+                    }
+                    break;
+                case TICKET_CREATED:
+                case BOOKING: {
+                    User owner = usersById.get(entry.getUserId());
+                    if (owner != null) {
+                        boolean known = owner.getTicketsBooked().stream()
+                                .anyMatch(t -> t.getTicketId().equals(entry.getTicketId()));
+                        if (!known) {
+                            owner.getTicketsBooked().add(entry.getTicket());
+                        }
+                    }
+                    break;
+                }
+                case GROUP_BOOKING: {
+                    User owner = usersById.get(entry.getUserId());
+                    if (owner != null) {
+                        for (Ticket ticket : entry.getTickets()) {
+                            boolean known = owner.getTicketsBooked().stream()
+                                    .anyMatch(t -> t.getTicketId().equals(ticket.getTicketId()));
+                            if (!known) {
+                                owner.getTicketsBooked().add(ticket);
+                            }
+                        }
+                    }
+                    break;
+                }
+                case TICKET_CANCELLED:
+                case CANCELLATION: {
+                    User owner = usersById.get(entry.getUserId());
+                    if (owner != null) {
+                        owner.getTicketsBooked().removeIf(t -> t.getTicketId().equals(entry.getTicketId()));
+                    }
+                    break;
+                }
+                default:
+                    break;
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package ticket.entities;
+
+import java.time.LocalTime;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A journey from one station to another on one or more trains, as found by the journey planner.
+ *
+ * Times are seconds after midnight of the travel date and can run past 24:00 on overnight trips.
+ */
+public class Itinerary {
+    public static class Leg {
+        private final Train train;
+        private final String source;
+        private final String destination;
+        private final int departure;
+        private final int arrival;
+
+        public Leg(Train train, String source, String destination, int departure, int arrival) {
+            this.train = train;
+            this.source = source;
+            this.destination = destination;
+            this.departure = departure;
+            this.arrival = arrival;
+        }
+
+        public Train getTrain() { return train; }
+        public String getSource() { return source; }
+        public String getDestination() { return destination; }
+        public int getDeparture() { return departure; }
+        public int getArrival() { return arrival; }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %s %s → %s %s", train.getTrainId(),
+                    source, formatTime(departure), destination, formatTime(arrival));
+        }
+    }
+
+    private final List<Leg> legs;
+
+    public Itinerary(List<Leg> legs) {
+        this.legs = Collections.unmodifiableList(legs);
+    }
+
+    public List<Leg> getLegs() { return legs; }
+    public int getTransfers() { return legs.size() - 1; }
+    public int getDeparture() { return legs.get(0).getDeparture(); }
+    public int getArrival() { return legs.get(legs.size() - 1).getArrival(); }
+    public int getDurationSeconds() { return getArrival() - getDeparture(); }
+
+    public static String formatTime(int seconds) {
+        String time = LocalTime.ofSecondOfDay(seconds % 86400).toString();
+        return seconds >= 86400 ? time + " (+" + seconds / 86400 + "d)" : time;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        text.append(formatTime(getDeparture())).append(" → ").append(formatTime(getArrival()))
+                .append(" | ").append(getTransfers()).append(getTransfers() == 1 ? " transfer" : " transfers");
+        for (Leg leg : legs) {
+            text.append(System.lineSeparator()).append("   ").append(leg);
+        }
+        return text.toString();
+    }
+}
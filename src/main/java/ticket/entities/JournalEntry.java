@@ -0,0 +1,173 @@
+package ticket.entities;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One line of the booking journal: a single change to trains or users since the last snapshot.
+ *
+ * BOOKING and CANCELLATION carry the seat change and the ticket change together, so one
+ * appended line commits both and a crash can never leave a booked seat without its ticket.
+ * GROUP_BOOKING does the same for every seat and ticket of a group at once.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class JournalEntry {
+    public enum Type {
+        SEAT_CLAIMED,
+        SEAT_RELEASED,
+        TICKET_CREATED,
+        TICKET_CANCELLED,
+        USER_REGISTERED,
+        BOOKING,
+        CANCELLATION,
+        GROUP_BOOKING
+    }
+
+    private Type type;
+    private String trainId;
+    private Integer seatRow;
+    private Integer seatColumn;
+    // Route legs the seat change covers; null (entries written before legs existed) means the whole route
+    private Long legs;
+    // Journey date of the seat change; null for changes to the undated seat matrix in trains.json
+    private String dateOfTravel;
+    private String userId;
+    private String ticketId;
+    private Ticket ticket;
+    private List<Ticket> tickets;
+    private User user;
+
+    public JournalEntry() {}
+
+    private JournalEntry(Type type) {
+        this.type = type;
+    }
+
+    // A seat claimed or released on one date without a ticket; entries without a date are from
+    // before seats were partitioned by date and still apply to the train's own matrix
+    public static JournalEntry seatChanged(String trainId, LocalDate dateOfTravel, int row, int column, long legs,
+                                           boolean booked) {
+        JournalEntry entry = new JournalEntry(booked ? Type.SEAT_CLAIMED : Type.SEAT_RELEASED);
+        entry.trainId = trainId;
+        entry.seatRow = row;
+        entry.seatColumn = column;
+        entry.legs = legs;
+        entry.dateOfTravel = dateOfTravel.toString();
+        return entry;
+    }
+
+    public static JournalEntry ticketCreated(Ticket ticket) {
+        JournalEntry entry = new JournalEntry(Type.TICKET_CREATED);
+        entry.userId = ticket.getUserId();
+        entry.ticketId = ticket.getTicketId();
+        entry.ticket = ticket;
+        return entry;
+    }
+
+    public static JournalEntry ticketCancelled(String userId, String ticketId) {
+        JournalEntry entry = new JournalEntry(Type.TICKET_CANCELLED);
+        entry.userId = userId;
+        entry.ticketId = ticketId;
+        return entry;
+    }
+
+    public static JournalEntry booking(Ticket ticket, long legs) {
+        JournalEntry entry = ticketCreated(ticket);
+        entry.type = Type.BOOKING;
+        entry.trainId = ticket.getTrainId();
+        entry.seatRow = ticket.getSeatRow();
+        entry.seatColumn = ticket.getSeatColumn();
+        entry.legs = legs;
+        entry.dateOfTravel = ticket.getDateOfTravel();
+        return entry;
+    }
+
+    public static JournalEntry cancellation(Ticket ticket, long legs) {
+        JournalEntry entry = ticketCancelled(ticket.getUserId(), ticket.getTicketId());
+        entry.type = Type.CANCELLATION;
+        entry.trainId = ticket.getTrainId();
+        entry.seatRow = ticket.getSeatRow();
+        entry.seatColumn = ticket.getSeatColumn();
+        entry.legs = legs;
+        entry.dateOfTravel = ticket.getDateOfTravel();
+        return entry;
+    }
+
+    // All tickets share the train, date and legs
+    public static JournalEntry groupBooking(List<Ticket> tickets, long legs) {
+        Ticket first = tickets.get(0);
+        JournalEntry entry = new JournalEntry(Type.GROUP_BOOKING);
+        entry.trainId = first.getTrainId();
+        entry.userId = first.getUserId();
+        entry.legs = legs;
+        entry.dateOfTravel = first.getDateOfTravel();
+        entry.tickets = new ArrayList<>(tickets);
+        return entry;
+    }
+
+    // The entry as single-seat changes: one BOOKING per ticket of a group, otherwise just itself
+    @JsonIgnore
+    public List<JournalEntry> getSeatChanges() {
+        if (type != Type.GROUP_BOOKING) {
+            return Collections.singletonList(this);
+        }
+        List<JournalEntry> changes = new ArrayList<>(tickets.size());
+        for (Ticket groupTicket : tickets) {
+            changes.add(booking(groupTicket, legs));
+        }
+        return changes;
+    }
+
+    // Seat state this entry leaves behind: TRUE booked, FALSE free, null if it has no seat
+    @JsonIgnore
+    public Boolean getSeatBooked() {
+        switch (type) {
+            case SEAT_CLAIMED:
+            case BOOKING:
+            case GROUP_BOOKING:
+                return Boolean.TRUE;
+            case SEAT_RELEASED:
+            case CANCELLATION:
+                return Boolean.FALSE;
+            default:
+                return null;
+        }
+    }
+
+    public static JournalEntry userRegistered(User user) {
+        JournalEntry entry = new JournalEntry(Type.USER_REGISTERED);
+        entry.userId = user.getUserId();
+        entry.user = user;
+        return entry;
+    }
+
+    public Type getType() { return type; }
+    public void setType(Type type) { this.type = type; }
+    public String getTrainId() { return trainId; }
+    public void setTrainId(String trainId) { this.trainId = trainId; }
+    public Integer getSeatRow() { return seatRow; }
+    public void setSeatRow(Integer seatRow) { this.seatRow = seatRow; }
+    public Integer getSeatColumn() { return seatColumn; }
+    public void setSeatColumn(Integer seatColumn) { this.seatColumn = seatColumn; }
+    public Long getLegs() { return legs; }
+    public void setLegs(Long legs) { this.legs = legs; }
+    public String getDateOfTravel() { return dateOfTravel; }
+    public void setDateOfTravel(String dateOfTravel) { this.dateOfTravel = dateOfTravel; }
+    public String getUserId() { return userId; }
+    public void setUserId(String userId) { this.userId = userId; }
+    public String getTicketId() { return ticketId; }
+    public void setTicketId(String ticketId) { this.ticketId = ticketId; }
+    public Ticket getTicket() { return ticket; }
+    public void setTicket(Ticket ticket) { this.ticket = ticket; }
+    public List<Ticket> getTickets() { return tickets; }
+    public void setTickets(List<Ticket> tickets) { this.tickets = tickets; }
+    public User getUser() { return user; }
+    public void setUser(User user) { this.user = user; }
+}
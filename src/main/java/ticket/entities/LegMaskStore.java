@@ -0,0 +1,15 @@
+package ticket.entities;
+
+/**
+ * Where a {@link SeatMap} keeps its per-seat leg masks. Every operation on a seat must be atomic;
+ * the default store is an AtomicLongArray on the heap.
+ */
+public interface LegMaskStore {
+    int length();
+
+    long get(int seat);
+
+    boolean compareAndSet(int seat, long expected, long updated);
+
+    long getAndSet(int seat, long mask);
+}
@@ -0,0 +1,22 @@
+package ticket.entities;
+
+/**
+ * One traveller in a group booking and the seat asked for them.
+ *
+ * A null passenger name means the ticket is for the account holder.
+ */
+public class PassengerSeat {
+    private final String passengerName;
+    private final int seatRow;
+    private final int seatColumn;
+
+    public PassengerSeat(String passengerName, int seatRow, int seatColumn) {
+        this.passengerName = passengerName;
+        this.seatRow = seatRow;
+        this.seatColumn = seatColumn;
+    }
+
+    public String getPassengerName() { return passengerName; }
+    public int getSeatRow() { return seatRow; }
+    public int getSeatColumn() { return seatColumn; }
+}
@@ -0,0 +1,12 @@
+package ticket.entities;
+
+/**
+ * Outcome of claiming or releasing a single seat on a {@link SeatMap}.
+ */
+public enum ReservationResult {
+    CLAIMED,
+    RELEASED,
+    ALREADY_TAKEN,
+    ALREADY_FREE,
+    OUT_OF_RANGE
+}
@@ -0,0 +1,441 @@
+package ticket.entities;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Seat occupancy of a train, one long per seat holding a bitmask of the route legs it is sold on
+ * (bit i = the leg from stop i to stop i + 1).
+ *
+ * A booking from A to B claims only the legs between A and B, so the same seat can be sold again
+ * on any stretch that doesn't overlap. The masks live in a {@link LegMaskStore} (an AtomicLongArray
+ * unless the seats are backed by a file): {@link #claim} and {@link #release} are a
+ * compare-and-set on one word, and "is this seat free from A to B" is a single AND. In JSON the
+ * map is still the nested array the data files have always used: 0 is free, 1 is booked for the
+ * whole route, and a partly sold seat is stored as its mask shifted left by one (always even, so
+ * it can't be mistaken for the old 1).
+ *
+ * Rows of different lengths are squared off to the longest one. The padding cells are not real
+ * seats: they are stored as booked for the whole route, can never be sold or released, and are
+ * left out again when the map is written. {@link #copyRowLengths} carries them over from a
+ * train's layout to the seats of one of its dates.
+ *
+ * Every successful change also updates a per-row, per-leg count of booked seats. The seat
+ * allocator uses these counts to skip full rows without looking at their seats.
+ */
+@JsonSerialize(using = SeatMap.Serializer.class)
+@JsonDeserialize(using = SeatMap.Deserializer.class)
+public class SeatMap {
+    public static final int MAX_LEGS = 63;
+
+    // Mask of a seat booked for the whole route before the leg count is known
+    private static final long WHOLE_ROUTE = -1L;
+
+    private final int rows;
+    private final int columns;
+    private final LegMaskStore legMasks;
+    // Booked seats per row and leg, at row * 64 + leg
+    private final AtomicIntegerArray rowLegBookings;
+    // 0 until the owning train binds its route
+    private volatile int legs;
+    // Real seats per row, or null if every row is full
+    private volatile int[] rowLengths;
+
+    public SeatMap(int rows, int columns) {
+        this.rows = rows;
+        this.columns = columns;
+        this.legMasks = new HeapLegMasks(rows * columns);
+        this.rowLegBookings = new AtomicIntegerArray(rows * Long.SIZE);
+    }
+
+    // Seats over an existing store, e.g. a memory-mapped file; the masks already in it are kept
+    public SeatMap(int rows, int columns, LegMaskStore legMasks) {
+        if (legMasks.length() != rows * columns) {
+            throw new IllegalArgumentException("Store holds " + legMasks.length() + " seats, expected "
+                    + rows + "x" + columns);
+        }
+        this.rows = rows;
+        this.columns = columns;
+        this.legMasks = legMasks;
+        this.rowLegBookings = new AtomicIntegerArray(rows * Long.SIZE);
+        for (int seat = 0; seat < legMasks.length(); seat++) {
+            countChange(seat, 0, legMasks.get(seat));
+        }
+    }
+
+    public static SeatMap fromNestedList(List<List<Integer>> seats) {
+        int columns = 0;
+        for (List<Integer> row : seats) {
+            columns = Math.max(columns, row.size());
+        }
+        SeatMap seatMap = new SeatMap(seats.size(), columns);
+        int[] lengths = new int[seats.size()];
+        for (int row = 0; row < seats.size(); row++) {
+            List<Integer> cells = seats.get(row);
+            lengths[row] = cells.size();
+            for (int column = 0; column < cells.size(); column++) {
+                Integer value = cells.get(column);
+                seatMap.store(row * columns + column, decode(value != null ? value : 0));
+            }
+        }
+        seatMap.setRowLengths(lengths);
+        return seatMap;
+    }
+
+    public List<List<Long>> toNestedList() {
+        List<List<Long>> seats = new ArrayList<>(rows);
+        for (int row = 0; row < rows; row++) {
+            List<Long> rowSeats = new ArrayList<>(columns);
+            for (int column = 0; column < rowLength(row); column++) {
+                rowSeats.add(encode(legMasks.get(row * columns + column)));
+            }
+            seats.add(rowSeats);
+        }
+        return seats;
+    }
+
+    // Called by the train once its route is known; whole-route bookings read from JSON are narrowed to its legs
+    public void bindLegs(int legs) {
+        if (legs < 1 || legs > MAX_LEGS) {
+            throw new IllegalArgumentException("A route must have between 1 and " + MAX_LEGS + " legs: " + legs);
+        }
+        this.legs = legs;
+        long full = fullRoute();
+        for (int seat = 0; seat < legMasks.length(); seat++) {
+            long mask = legMasks.get(seat);
+            if ((mask & ~full) != 0) {
+                update(seat, mask, mask & full);
+            }
+        }
+    }
+
+    // Marks the cells past each row's length as padding, taken for good; null or full rows mark nothing
+    public void setRowLengths(int[] lengths) {
+        if (lengths == null) {
+            return;
+        }
+        if (lengths.length != rows) {
+            throw new IllegalArgumentException("Got " + lengths.length + " row lengths for " + rows + " rows");
+        }
+        boolean ragged = false;
+        for (int row = 0; row < rows; row++) {
+            int length = Math.max(0, Math.min(lengths[row], columns));
+            for (int column = length; column < columns; column++) {
+                int seat = row * columns + column;
+                long mask = legMasks.get(seat);
+                if (mask != WHOLE_ROUTE && mask != fullRoute()) {
+                    store(seat, fullRoute());
+                }
+                ragged = true;
+            }
+        }
+        this.rowLengths = ragged ? lengths.clone() : null;
+    }
+
+    // Gives these seats the same padding as the layout they were built from
+    public void copyRowLengths(SeatMap layout) {
+        int[] lengths = layout.rowLengths;
+        if (lengths != null && layout.rows == rows && layout.columns == columns) {
+            setRowLengths(lengths);
+        }
+    }
+
+    public boolean isRagged() {
+        return rowLengths != null;
+    }
+
+    // Real seats in the row; the cells after them are padding
+    public int rowLength(int row) {
+        int[] lengths = rowLengths;
+        return lengths == null ? columns : Math.min(lengths[row], columns);
+    }
+
+    public int getRows() { return rows; }
+    public int getColumns() { return columns; }
+    public int getLegs() { return legs; }
+    public int capacity() { return rows * columns; }
+
+    // Mask covering every leg of the route
+    public long fullRoute() {
+        int bound = legs;
+        return bound == 0 ? WHOLE_ROUTE : (1L << bound) - 1;
+    }
+
+    public boolean isValidSeat(int row, int column) {
+        return row >= 0 && row < rows && column >= 0 && column < columns;
+    }
+
+    // True if the seat is sold on any leg
+    public boolean isBooked(int row, int column) {
+        return legMasks.get(seatIndex(row, column)) != 0;
+    }
+
+    // True if the seat is sold on any of the given legs
+    public boolean isBooked(int row, int column, long legMask) {
+        return (legMasks.get(seatIndex(row, column)) & legMask) != 0;
+    }
+
+    // Raw leg mask of a seat (row * columns + column), for snapshots and copies
+    public long legMask(int seat) {
+        return legMasks.get(seat);
+    }
+
+    public void setLegMask(int seat, long mask) {
+        store(seat, mask);
+    }
+
+    public ReservationResult claim(int row, int column) {
+        return claim(row, column, fullRoute());
+    }
+
+    // Atomically books the given legs if none of them is taken; exactly one of any number of racing callers wins
+    public ReservationResult claim(int row, int column, long legMask) {
+        if (!isValidSeat(row, column) || legMask == 0) {
+            return ReservationResult.OUT_OF_RANGE;
+        }
+        int seat = row * columns + column;
+        while (true) {
+            long mask = legMasks.get(seat);
+            if ((mask & legMask) != 0) {
+                return ReservationResult.ALREADY_TAKEN;
+            }
+            if (update(seat, mask, mask | legMask)) {
+                return ReservationResult.CLAIMED;
+            }
+        }
+    }
+
+    public ReservationResult release(int row, int column) {
+        return release(row, column, fullRoute());
+    }
+
+    public ReservationResult release(int row, int column, long legMask) {
+        if (!isValidSeat(row, column) || column >= rowLength(row) || legMask == 0) {
+            return ReservationResult.OUT_OF_RANGE;
+        }
+        int seat = row * columns + column;
+        while (true) {
+            long mask = legMasks.get(seat);
+            if ((mask & legMask) == 0) {
+                return ReservationResult.ALREADY_FREE;
+            }
+            if (update(seat, mask, mask & ~legMask)) {
+                return ReservationResult.RELEASED;
+            }
+        }
+    }
+
+    // Unconditional write, used when loading or replaying state rather than booking
+    public void setBooked(int row, int column, boolean booked) {
+        setBooked(row, column, fullRoute(), booked);
+    }
+
+    public void setBooked(int row, int column, long legMask, boolean booked) {
+        int seat = seatIndex(row, column);
+        if (!booked && column >= rowLength(row)) {
+            return;
+        }
+        while (true) {
+            long mask = legMasks.get(seat);
+            long updated = booked ? mask | legMask : mask & ~legMask;
+            if (mask == updated || update(seat, mask, updated)) {
+                return;
+            }
+        }
+    }
+
+    // Seats sold on at least one leg
+    public int bookedSeats() {
+        int booked = 0;
+        for (int seat = 0; seat < legMasks.length(); seat++) {
+            if (legMasks.get(seat) != 0) {
+                booked++;
+            }
+        }
+        return booked;
+    }
+
+    public int freeSeats() {
+        return capacity() - bookedSeats();
+    }
+
+    // Seats still free on every one of the given legs
+    public int freeSeats(long legMask) {
+        int free = 0;
+        for (int seat = 0; seat < legMasks.length(); seat++) {
+            if ((legMasks.get(seat) & legMask) == 0) {
+                free++;
+            }
+        }
+        return free;
+    }
+
+    // First seat at or after the given seat index (row * columns + column) free on the whole route, or -1
+    public int nextFreeSeat(int fromSeat) {
+        return nextFreeSeat(fromSeat, fullRoute());
+    }
+
+    public int nextFreeSeat(int fromSeat, long legMask) {
+        if (fromSeat < 0) {
+            return -1;
+        }
+        for (int seat = fromSeat; seat < legMasks.length(); seat++) {
+            if ((legMasks.get(seat) & legMask) == 0) {
+                return seat;
+            }
+        }
+        return -1;
+    }
+
+    // True if the seat (row * columns + column) is free on every one of the given legs
+    public boolean isFree(int seat, long legMask) {
+        return (legMasks.get(seat) & legMask) == 0;
+    }
+
+    // Upper bound on the seats in a row free for the given legs, read from the per-leg counts;
+    // exact for a single leg, and 0 means the row can be skipped
+    public int maxFreeInRow(int row, long legMask) {
+        int booked = 0;
+        long remaining = legMask & fullRoute();
+        while (remaining != 0) {
+            int leg = Long.numberOfTrailingZeros(remaining);
+            booked = Math.max(booked, rowLegBookings.get(row * Long.SIZE + leg));
+            remaining &= remaining - 1;
+        }
+        return columns - booked;
+    }
+
+    public int rowOf(int seat) { return seat / columns; }
+    public int columnOf(int seat) { return seat % columns; }
+
+    private int seatIndex(int row, int column) {
+        if (!isValidSeat(row, column)) {
+            throw new IndexOutOfBoundsException("Seat [" + row + "][" + column + "] is outside "
+                    + rows + "x" + columns);
+        }
+        return row * columns + column;
+    }
+
+    private boolean update(int seat, long expected, long updated) {
+        if (!legMasks.compareAndSet(seat, expected, updated)) {
+            return false;
+        }
+        countChange(seat, expected, updated);
+        return true;
+    }
+
+    private void store(int seat, long mask) {
+        countChange(seat, legMasks.getAndSet(seat, mask), mask);
+    }
+
+    private void countChange(int seat, long before, long after) {
+        int rowBase = (seat / columns) * Long.SIZE;
+        long changed = before ^ after;
+        while (changed != 0) {
+            int leg = Long.numberOfTrailingZeros(changed);
+            rowLegBookings.addAndGet(rowBase + leg, (after & (1L << leg)) != 0 ? 1 : -1);
+            changed &= changed - 1;
+        }
+    }
+
+    private long encode(long mask) {
+        if (mask == 0) {
+            return 0;
+        }
+        return mask == fullRoute() || mask == WHOLE_ROUTE ? 1 : mask << 1;
+    }
+
+    private static long decode(long value) {
+        if (value == 0) {
+            return 0;
+        }
+        return (value & 1) != 0 ? WHOLE_ROUTE : value >>> 1;
+    }
+
+    private static final class HeapLegMasks implements LegMaskStore {
+        private final AtomicLongArray masks;
+
+        HeapLegMasks(int seats) {
+            this.masks = new AtomicLongArray(seats);
+        }
+
+        @Override
+        public int length() { return masks.length(); }
+
+        @Override
+        public long get(int seat) { return masks.get(seat); }
+
+        @Override
+        public boolean compareAndSet(int seat, long expected, long updated) {
+            return masks.compareAndSet(seat, expected, updated);
+        }
+
+        @Override
+        public long getAndSet(int seat, long mask) { return masks.getAndSet(seat, mask); }
+    }
+
+    public static class Serializer extends JsonSerializer<SeatMap> {
+        @Override
+        public void serialize(SeatMap seatMap, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartArray();
+            for (int row = 0; row < seatMap.rows; row++) {
+                gen.writeStartArray();
+                for (int column = 0; column < seatMap.rowLength(row); column++) {
+                    gen.writeNumber(seatMap.encode(seatMap.legMasks.get(row * seatMap.columns + column)));
+                }
+                gen.writeEndArray();
+            }
+            gen.writeEndArray();
+        }
+    }
+
+    public static class Deserializer extends JsonDeserializer<SeatMap> {
+        @Override
+        public SeatMap deserialize(JsonParser parser, DeserializationContext ctxt) throws IOException {
+            // Read the cells straight off the token stream instead of building boxed lists
+            List<long[]> rows = new ArrayList<>();
+            int columns = 0;
+            if (parser.currentToken() != JsonToken.START_ARRAY) {
+                return (SeatMap) ctxt.handleUnexpectedToken(SeatMap.class, parser);
+            }
+            while (parser.nextToken() == JsonToken.START_ARRAY) {
+                long[] row = new long[8];
+                int width = 0;
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    if (width == row.length) {
+                        row = Arrays.copyOf(row, width * 2);
+                    }
+                    row[width++] = decode(parser.getLongValue());
+                }
+                rows.add(Arrays.copyOf(row, width));
+                columns = Math.max(columns, width);
+            }
+
+            SeatMap seatMap = new SeatMap(rows.size(), columns);
+            int[] lengths = new int[rows.size()];
+            for (int row = 0; row < rows.size(); row++) {
+                long[] cells = rows.get(row);
+                lengths[row] = cells.length;
+                for (int column = 0; column < cells.length; column++) {
+                    seatMap.store(row * columns + column, cells[column]);
+                }
+            }
+            seatMap.setRowLengths(lengths);
+            return seatMap;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package ticket.entities;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dictionary of every station on a train route.
+ *
+ * Each canonical station gets a compact int id the first time a route names it. Names are
+ * normalized (trimmed, lower-cased) for lookup, and the first spelling seen is kept as the display
+ * name so the JSON files stay readable. All trains and tickets share the interned name strings.
+ */
+public final class StationRegistry {
+    private static final StationRegistry INSTANCE = new StationRegistry();
+
+    private final Map<String, Integer> idsByKey = new ConcurrentHashMap<>();
+    private volatile String[] names = new String[64];
+    private int size;
+
+    private StationRegistry() {}
+
+    public static StationRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    public static String normalize(String station) {
+        return station.trim().toLowerCase();
+    }
+
+    // Returns the id for this station, assigning a new one if it has never been seen
+    public int idOf(String station) {
+        Integer id = idsByKey.get(normalize(station));
+        if (id != null) {
+            return id;
+        }
+        synchronized (this) {
+            return idsByKey.computeIfAbsent(normalize(station), key -> {
+                if (size == names.length) {
+                    names = Arrays.copyOf(names, size * 2);
+                }
+                names[size] = station.trim();
+                return size++;
+            });
+        }
+    }
+
+    // Lookup without registering, for queries: -1 if no train stops at this station
+    public int findId(String station) {
+        Integer id = idsByKey.get(normalize(station));
+        return id != null ? id : -1;
+    }
+
+    public String nameOf(int id) {
+        return names[id];
+    }
+
+    // The shared display-name instance for a station some train stops at; any other name is only
+    // trimmed, so tickets and timetables never add stations to the registry
+    public String canonicalName(String station) {
+        if (station == null) {
+            return null;
+        }
+        int id = findId(station);
+        return id >= 0 ? nameOf(id) : station.trim();
+    }
+
+    public int[] idsOf(List<String> stations) {
+        int[] ids = new int[stations.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = idOf(stations.get(i));
+        }
+        return ids;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+}
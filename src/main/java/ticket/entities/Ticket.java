@@ -1,6 +1,10 @@
 package ticket.entities;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonSetter;
+import com.fasterxml.jackson.databind.JsonNode;
 
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class Ticket {
@@ -9,20 +13,30 @@ public class Ticket {
     private String source;
     private String destination;
     private String dateOfTravel;
-    private Train train;
+    // Reference to the train, resolved against the train repository when needed
+    private String trainId;
+    private int trainNo;
     private int seatRow;
     private int seatColumn;
+    // Traveller named on a group booking; null when the account holder travels
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String passengerName;
+
+    // Set when this ticket was read from the old format that embedded a full Train copy
+    @JsonIgnore
+    private boolean legacyFormat;
 
     public Ticket() {}
 
     public Ticket(String ticketId, String userId, String source, String destination,
-                  String dateOfTravel, Train train, int seatRow, int seatColumn) {
+                  String dateOfTravel, String trainId, int trainNo, int seatRow, int seatColumn) {
         this.ticketId = ticketId;
         this.userId = userId;
-        this.source = source;
-        this.destination = destination;
+        setSource(source);
+        setDestination(destination);
         this.dateOfTravel = dateOfTravel;
-        this.train = train;
+        this.trainId = trainId;
+        this.trainNo = trainNo;
         this.seatRow = seatRow;
         this.seatColumn = seatColumn;
     }
@@ -51,17 +65,45 @@ public class Ticket {
     public String getUserId() { return userId; }
     public void setUserId(String userId) { this.userId = userId; }
     public String getSource() { return source; }
-    public void setSource(String source) { this.source = source; }
+    public void setSource(String source) { this.source = StationRegistry.getInstance().canonicalName(source); }
     public String getDestination() { return destination; }
-    public void setDestination(String destination) { this.destination = destination; }
+    public void setDestination(String destination) {
+        this.destination = StationRegistry.getInstance().canonicalName(destination);
+    }
     public String getDateOfTravel() { return dateOfTravel; }
     public void setDateOfTravel(String dateOfTravel) { this.dateOfTravel = dateOfTravel; }
-    public Train getTrain() { return train; }
-    public void setTrain(Train train) { this.train = train; }
+    public String getTrainId() { return trainId; }
+    public void setTrainId(String trainId) { this.trainId = trainId; }
+    public int getTrainNo() { return trainNo; }
+    public void setTrainNo(int trainNo) { this.trainNo = trainNo; }
+    public String getPassengerName() { return passengerName; }
+    public void setPassengerName(String passengerName) { this.passengerName = passengerName; }
+
+    @JsonIgnore
+    public boolean isLegacyFormat() { return legacyFormat; }
+
+    // Old users.json files embed the whole train; keep only the reference and drop the copy
+    @JsonSetter("train")
+    private void setLegacyTrain(JsonNode train) {
+        if (train == null || train.isNull()) {
+            return;
+        }
+        if (trainId == null && train.hasNonNull("trainId")) {
+            trainId = train.get("trainId").asText();
+        }
+        if (trainNo == 0 && train.hasNonNull("trainNo")) {
+            trainNo = train.get("trainNo").asInt();
+        }
+        legacyFormat = true;
+    }
 
+    @JsonIgnore
     public String getTicketInfo() {
-        String trainInfo = (train != null) ? train.getTrainInfo() : "No train info";
-        return String.format("Ticket ID: %s | User: %s | Route: %s to %s | Date: %s | Train: %s | Seat: %d-%d",
+        String trainInfo = (trainId != null)
+                ? String.format("Train ID: %s, Train No: %d", trainId, trainNo)
+                : "No train info";
+        String info = String.format("Ticket ID: %s | User: %s | Route: %s to %s | Date: %s | Train: %s | Seat: %d-%d",
                 ticketId, userId, source, destination, dateOfTravel, trainInfo, seatRow, seatColumn);
+        return passengerName != null ? info + " | Passenger: " + passengerName : info;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,62 @@
+package ticket.entities;
+
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A train's schedule as arrival and departure seconds after midnight, one slot per stop in route
+ * order.
+ *
+ * It is parsed once from the "HH:mm:ss" strings in stationTimes, so filters and sorting compare
+ * ints. Times keep counting past 86400 when a train runs through midnight. The data files have a
+ * single time per stop, which is used as both arrival and departure.
+ */
+public class Timetable {
+    public static final int SECONDS_PER_DAY = 86400;
+
+    private final int[] arrivals;
+    private final int[] departures;
+
+    private Timetable(int[] arrivals, int[] departures) {
+        this.arrivals = arrivals;
+        this.departures = departures;
+    }
+
+    // Null if any stop on the route has no time, or a time that can't be parsed
+    public static Timetable of(List<String> stations, Map<String, String> stationTimes) {
+        if (stationTimes == null || stations.isEmpty()) {
+            return null;
+        }
+        int[] times = new int[stations.size()];
+        int dayOffset = 0;
+        for (int stop = 0; stop < times.length; stop++) {
+            String time = stationTimes.get(stations.get(stop));
+            if (time == null) {
+                return null;
+            }
+            int seconds;
+            try {
+                seconds = LocalTime.parse(time).toSecondOfDay();
+            } catch (DateTimeParseException e) {
+                return null;
+            }
+            // A clock time earlier than the previous stop means the train ran past midnight
+            if (stop > 0 && seconds + dayOffset < times[stop - 1]) {
+                dayOffset += SECONDS_PER_DAY;
+            }
+            times[stop] = seconds + dayOffset;
+        }
+        return new Timetable(times, times);
+    }
+
+    public int stops() { return departures.length; }
+    public int arrivalAt(int stop) { return arrivals[stop]; }
+    public int departureAt(int stop) { return departures[stop]; }
+
+    // Seconds from leaving one stop to arriving at a later one
+    public int duration(int fromStop, int toStop) {
+        return arrivals[toStop] - departures[fromStop];
+    }
+}
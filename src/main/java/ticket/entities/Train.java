@@ -1,7 +1,10 @@
 package ticket.entities;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import java.util.AbstractList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -14,36 +17,114 @@ public class Train {
     private int trainNo;
 
     @JsonProperty("seats")
-    private List<List<Integer>> seats;
+    private SeatMap seats;
 
     @JsonProperty("stationTimes")
     private Map<String, String> stationTimes;
 
-    @JsonProperty("stations")
-    private List<String> stations;
+    // Route as station ids from the StationRegistry; read and written as names in JSON
+    @JsonIgnore
+    private int[] route = new int[0];
+
+    // stationTimes parsed into seconds, aligned with route; null while incomplete
+    @JsonIgnore
+    private Timetable timetable;
 
     public Train() {}
 
-    public Train(String trainId, int trainNo, List<List<Integer>> seats,
+    public Train(String trainId, int trainNo, SeatMap seats,
                  Map<String, String> stationTimes, List<String> stations) {
         this.trainId = trainId;
         this.trainNo = trainNo;
         this.seats = seats;
-        this.stationTimes = stationTimes;
-        this.stations = stations;
+        setStationTimes(stationTimes);
+        setStations(stations);
     }
 
     // Getters and setters...
-    public List<String> getStations() { return stations; }
-    public List<List<Integer>> getSeats() { return seats; }
-    public void setSeats(List<List<Integer>> seats) { this.seats = seats; }
+    @JsonProperty("stations")
+    public List<String> getStations() {
+        int[] stops = route;
+        return new AbstractList<String>() {
+            @Override
+            public String get(int index) { return StationRegistry.getInstance().nameOf(stops[index]); }
+
+            @Override
+            public int size() { return stops.length; }
+        };
+    }
+
+    @JsonIgnore
+    public int[] getRoute() { return route; }
+    @JsonIgnore
+    public Timetable getTimetable() { return timetable; }
+    public SeatMap getSeats() { return seats; }
+    public void setSeats(SeatMap seats) {
+        this.seats = seats;
+        bindSeatLegs();
+    }
     public String getTrainId() { return trainId; }
     public Map<String, String> getStationTimes() { return stationTimes; }
     public int getTrainNo() { return trainNo; }
     public void setTrainNo(int trainNo) { this.trainNo = trainNo; }
     public void setTrainId(String trainId) { this.trainId = trainId; }
-    public void setStationTimes(Map<String, String> stationTimes) { this.stationTimes = stationTimes; }
-    public void setStations(List<String> stations) { this.stations = stations; }
+    public void setStationTimes(Map<String, String> stationTimes) {
+        if (stationTimes == null) {
+            this.stationTimes = null;
+            return;
+        }
+        this.stationTimes = canonicalTimes(stationTimes);
+        timetable = Timetable.of(getStations(), this.stationTimes);
+    }
+
+    @JsonProperty("stations")
+    public void setStations(List<String> stations) {
+        this.route = stations != null ? StationRegistry.getInstance().idsOf(stations) : new int[0];
+        bindSeatLegs();
+        // Times read before the route were keyed by stations not registered yet
+        if (stationTimes != null) {
+            stationTimes = canonicalTimes(stationTimes);
+        }
+        timetable = Timetable.of(getStations(), stationTimes);
+    }
+
+    // Keys the times by the shared station names instead of per-train string copies
+    private static Map<String, String> canonicalTimes(Map<String, String> stationTimes) {
+        Map<String, String> canonical = new LinkedHashMap<>();
+        for (Map.Entry<String, String> entry : stationTimes.entrySet()) {
+            canonical.put(StationRegistry.getInstance().canonicalName(entry.getKey()), entry.getValue());
+        }
+        return canonical;
+    }
+
+    // Mask of the legs travelled from source to destination, or 0 if the train doesn't run that way
+    public long legsBetween(String source, String destination) {
+        StationRegistry registry = StationRegistry.getInstance();
+        int from = stopIndexOf(registry.findId(source));
+        int to = stopIndexOf(registry.findId(destination));
+        if (from < 0 || to <= from) {
+            return 0;
+        }
+        return ((1L << (to - from)) - 1) << from;
+    }
+
+    // Position of the station on the route, or -1 if the train doesn't stop there
+    public int stopIndexOf(int stationId) {
+        int[] stops = route;
+        for (int i = 0; i < stops.length; i++) {
+            if (stops[i] == stationId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Seats and stations can arrive in either order from JSON; whichever comes second sizes the leg masks
+    private void bindSeatLegs() {
+        if (seats != null && route.length > 1) {
+            seats.bindLegs(route.length - 1);
+        }
+    }
 
     public String getTrainInfo() {
         return String.format("Train ID: %s, Train No: %d", trainId, trainNo);
@@ -1,26 +1,31 @@
 package ticket.entities;
 
-import java.util.ArrayList;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class User {
     private String name;
+    // Plaintext, only ever held in memory; users.json, snapshots and the journal keep the hash
     private String password;
     private String hashedPassword;
     private String userId;
-    private List<Ticket> ticketsBooked;
+    // Copy-on-write, so a snapshot can serialize the list while bookings change it
+    private List<Ticket> ticketsBooked = new CopyOnWriteArrayList<>();
 
     public User(String name, String password, String hashedPassword, List<Ticket> ticketsBooked, String userId) {
         this.name = name;
         this.password = password;
         this.hashedPassword = hashedPassword;
-        this.ticketsBooked = ticketsBooked != null ? ticketsBooked : new ArrayList<>();
+        setTicketsBooked(ticketsBooked);
         this.userId = userId;
     }
 
     public User() {}
 
     public String getName() { return name; }
+    @JsonIgnore
     public String getPassword() { return password; }
     public String getHashedPassword() { return hashedPassword; }
     public List<Ticket> getTicketsBooked() { return ticketsBooked; }
@@ -29,7 +34,9 @@ public class User {
     public void setName(String name) { this.name = name; }
     public void setPassword(String password) { this.password = password; }
     public void setHashedPassword(String hashedPassword) { this.hashedPassword = hashedPassword; }
-    public void setTicketsBooked(List<Ticket> ticketsBooked) { this.ticketsBooked = ticketsBooked; }
+    public void setTicketsBooked(List<Ticket> ticketsBooked) {
+        this.ticketsBooked = ticketsBooked != null ? new CopyOnWriteArrayList<>(ticketsBooked) : new CopyOnWriteArrayList<>();
+    }
     public void setUserId(String userId) { this.userId = userId; }
 
     public void printTickets() {
@@ -0,0 +1,88 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+/**
+ * Hands log records to a background thread that writes them through another handler.
+ *
+ * Logging threads only pay for an offer to a bounded queue. If the writer falls behind and the
+ * queue fills up, records are dropped and counted instead of blocking the caller, and the count is
+ * reported with the next batch. {@link #flush} waits until everything queued so far is written.
+ */
+public class AsyncLogHandler extends Handler {
+    private final Handler delegate;
+    private final BlockingQueue<LogRecord> queue;
+    private final AtomicLong queued = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final Thread writer;
+
+    public AsyncLogHandler(Handler delegate, int capacity) {
+        this.delegate = delegate;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.writer = new Thread(this::drain, "async-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public void publish(LogRecord record) {
+        if (!isLoggable(record)) {
+            return;
+        }
+        if (queue.offer(record)) {
+            queued.incrementAndGet();
+        } else {
+            dropped.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void flush() {
+        long target = queued.get();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (written.get() < target && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+        }
+        delegate.flush();
+    }
+
+    @Override
+    public void close() {
+        flush();
+        writer.interrupt();
+        delegate.close();
+    }
+
+    private void drain() {
+        List<LogRecord> batch = new ArrayList<>();
+        while (true) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch);
+            long lost = dropped.getAndSet(0);
+            if (lost > 0) {
+                delegate.publish(new LogRecord(Level.WARNING,
+                        "⚠️ " + lost + " log lines dropped, the log writer could not keep up"));
+            }
+            for (LogRecord record : batch) {
+                delegate.publish(record);
+            }
+            delegate.flush();
+            written.addAndGet(batch.size());
+            batch.clear();
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package util;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+public class AtomicFileWriter {
+    // Writes JSON to a temp file, fsyncs it and renames it over the target, so readers (and a
+    // restart after a crash) see either the old file or the new one, never a truncated mix
+    public static void writeJson(ObjectMapper objectMapper, File target, Object value) throws IOException {
+        File tempFile = new File(target.getParentFile(), target.getName() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tempFile)) {
+            objectMapper.writer()
+                    .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                    .writeValue(out, value);
+            out.getFD().sync();
+        }
+        Files.move(tempFile.toPath(), target.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
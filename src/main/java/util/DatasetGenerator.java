@@ -0,0 +1,306 @@
+package util;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.mindrot.jbcrypt.BCrypt;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+import java.util.logging.Logger;
+
+/**
+ * Writes a synthetic trains.json and users.json for load and scale testing.
+ *
+ * Stations sit on a ring; every train runs a random stretch of it in either direction, so routes
+ * overlap the way real lines do. Each train and user is derived from (seed, index) alone, so the
+ * same seed and travel dates always give the same trains, users and tickets, and records are
+ * streamed straight to disk without holding the dataset in memory. Ticket k goes to train
+ * k % trains and takes seats and dates in order after that, so no two generated tickets share a
+ * seat on the same date. Writing users fails if users * ticketsPerUser is more than the
+ * trains * seats * ticketDays there are to go round; raise gen.trains, gen.ticketDays or the seat
+ * grid for bigger user counts. All users share one password, hashed once
+ * with a salt drawn from the seed, so users.json is byte-for-byte the same on every run.
+ *
+ * Run with an output directory and any of the gen.* system properties below, for example
+ * -Dgen.trains=100000 -Dgen.users=1000000 -Dgen.seed=7. Pin gen.firstTravelDate to reproduce a
+ * dataset on another day.
+ */
+public class DatasetGenerator {
+    private static final Logger LOGGER = Logging.getLogger(DatasetGenerator.class);
+    private static final int PROGRESS_EVERY = 100_000;
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    // bcrypt's own base64 alphabet, for writing a salt
+    private static final char[] BCRYPT_BASE64 =
+            "./ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789".toCharArray();
+
+    public static final String PASSWORD = "password";
+
+    private final long seed;
+    private int trains = 10;
+    private int stations = 500;
+    private int minStops = 3;
+    private int maxStops = 12;
+    private int coaches = 10;
+    private int berthsPerCoach = 6;
+    private int minStopMinutes = 5;
+    private int maxStopMinutes = 30;
+    private int users = 1000;
+    private int ticketsPerUser = 1;
+    private int ticketDays = 30;
+    private LocalDate firstTravelDate = LocalDate.now().plusDays(1);
+
+    public DatasetGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    public DatasetGenerator trains(int trains) {
+        this.trains = trains;
+        return this;
+    }
+
+    public DatasetGenerator stations(int stations) {
+        this.stations = stations;
+        return this;
+    }
+
+    // Stops per train, chosen uniformly in [min, max]; at most 64 so every leg fits a seat's mask
+    public DatasetGenerator stops(int min, int max) {
+        if (min < 2 || max < min || max > 64) {
+            throw new IllegalArgumentException("Stops must satisfy 2 <= min <= max <= 64: " + min + ", " + max);
+        }
+        this.minStops = min;
+        this.maxStops = max;
+        return this;
+    }
+
+    // Seat grid of every train: one row per coach, one column per berth
+    public DatasetGenerator seats(int coaches, int berthsPerCoach) {
+        this.coaches = coaches;
+        this.berthsPerCoach = berthsPerCoach;
+        return this;
+    }
+
+    // Running time between consecutive stops, chosen uniformly in [min, max] minutes
+    public DatasetGenerator stopSpacing(int minMinutes, int maxMinutes) {
+        this.minStopMinutes = minMinutes;
+        this.maxStopMinutes = maxMinutes;
+        return this;
+    }
+
+    public DatasetGenerator users(int users) {
+        this.users = users;
+        return this;
+    }
+
+    public DatasetGenerator ticketsPerUser(int ticketsPerUser) {
+        this.ticketsPerUser = ticketsPerUser;
+        return this;
+    }
+
+    // Generated tickets travel on one of the ticketDays days starting at firstTravelDate
+    public DatasetGenerator ticketDates(LocalDate firstTravelDate, int ticketDays) {
+        this.firstTravelDate = firstTravelDate;
+        this.ticketDays = ticketDays;
+        return this;
+    }
+
+    // Tickets that fit before two of them would share a seat on the same date
+    public long ticketCapacity() {
+        return (long) trains * coaches * berthsPerCoach * ticketDays;
+    }
+
+    public void write(File directory) throws IOException {
+        if (stations < maxStops) {
+            throw new IllegalArgumentException("Need at least " + maxStops + " stations, got " + stations);
+        }
+        if (trains == 0 && users > 0 && ticketsPerUser > 0) {
+            throw new IllegalArgumentException("Tickets need at least one train");
+        }
+        // Checked before anything is written, so a bad configuration leaves no half-written dataset
+        requireTicketsFit();
+        directory.mkdirs();
+        writeTrains(new File(directory, "trains.json"));
+        writeUsers(new File(directory, "users.json"));
+    }
+
+    public void writeTrains(File file) throws IOException {
+        try (JsonGenerator json = new JsonFactory().createGenerator(file, JsonEncoding.UTF8)) {
+            json.writeStartArray();
+            for (int i = 0; i < trains; i++) {
+                SplittableRandom random = randomFor(1, i);
+                int[] route = route(i);
+                int minute = random.nextInt(MINUTES_PER_DAY);
+
+                json.writeStartObject();
+                json.writeStringField("trainId", trainId(i));
+                json.writeNumberField("trainNo", trainNo(i));
+                json.writeArrayFieldStart("seats");
+                int[] freeRow = new int[berthsPerCoach];
+                for (int row = 0; row < coaches; row++) {
+                    json.writeArray(freeRow, 0, freeRow.length);
+                }
+                json.writeEndArray();
+                json.writeObjectFieldStart("stationTimes");
+                for (int stop = 0; stop < route.length; stop++) {
+                    if (stop > 0) {
+                        minute += minStopMinutes + random.nextInt(maxStopMinutes - minStopMinutes + 1);
+                    }
+                    int timeOfDay = minute % MINUTES_PER_DAY;
+                    json.writeStringField(stationName(route[stop]),
+                            String.format("%02d:%02d:00", timeOfDay / 60, timeOfDay % 60));
+                }
+                json.writeEndObject();
+                json.writeArrayFieldStart("stations");
+                for (int station : route) {
+                    json.writeString(stationName(station));
+                }
+                json.writeEndArray();
+                json.writeEndObject();
+                reportProgress("trains", i + 1, trains);
+            }
+            json.writeEndArray();
+        }
+        LOGGER.info(() -> "🚆 Wrote " + trains + " trains to " + file.getPath());
+    }
+
+    public void writeUsers(File file) throws IOException {
+        requireTicketsFit();
+        String hash = BCrypt.hashpw(PASSWORD, seededSalt());
+        int seatsPerTrain = coaches * berthsPerCoach;
+        try (JsonGenerator json = new JsonFactory().createGenerator(file, JsonEncoding.UTF8)) {
+            json.writeStartArray();
+            for (int i = 0; i < users; i++) {
+                SplittableRandom random = randomFor(2, i);
+                String userId = userId(i);
+                json.writeStartObject();
+                json.writeStringField("name", userName(i));
+                json.writeStringField("hashedPassword", hash);
+                json.writeStringField("userId", userId);
+                json.writeArrayFieldStart("ticketsBooked");
+                for (int j = 0; j < ticketsPerUser; j++) {
+                    long ticket = (long) i * ticketsPerUser + j;
+                    int train = (int) (ticket % trains);
+                    long slot = ticket / trains;
+                    int seat = (int) (slot % seatsPerTrain);
+                    int[] route = route(train);
+                    int from = random.nextInt(route.length - 1);
+                    int to = from + 1 + random.nextInt(route.length - 1 - from);
+
+                    json.writeStartObject();
+                    json.writeStringField("ticketId", String.format("TKT_%019d", ticket));
+                    json.writeStringField("userId", userId);
+                    json.writeStringField("source", stationName(route[from]));
+                    json.writeStringField("destination", stationName(route[to]));
+                    json.writeStringField("dateOfTravel",
+                            firstTravelDate.plusDays(slot / seatsPerTrain % ticketDays).toString());
+                    json.writeStringField("trainId", trainId(train));
+                    json.writeNumberField("trainNo", trainNo(train));
+                    json.writeNumberField("seatRow", seat / berthsPerCoach);
+                    json.writeNumberField("seatColumn", seat % berthsPerCoach);
+                    json.writeEndObject();
+                }
+                json.writeEndArray();
+                json.writeEndObject();
+                reportProgress("users", i + 1, users);
+            }
+            json.writeEndArray();
+        }
+        LOGGER.info(() -> "👥 Wrote " + users + " users to " + file.getPath());
+    }
+
+    private void requireTicketsFit() {
+        long tickets = (long) users * ticketsPerUser;
+        if (tickets > ticketCapacity()) {
+            throw new IllegalArgumentException(tickets + " tickets don't fit " + trains + " trains of "
+                    + coaches * berthsPerCoach + " seats over " + ticketDays + " days (" + ticketCapacity()
+                    + " seat-days); add trains, ticket days or seats");
+        }
+    }
+
+    // Station indexes the train stops at, in order
+    public int[] route(int train) {
+        SplittableRandom random = randomFor(0, train);
+        int stops = minStops + random.nextInt(maxStops - minStops + 1);
+        int first = random.nextInt(stations);
+        int step = random.nextBoolean() ? 1 : stations - 1;
+        int[] route = new int[stops];
+        for (int stop = 0; stop < stops; stop++) {
+            route[stop] = (first + stop * step) % stations;
+        }
+        return route;
+    }
+
+    public static String trainId(int train) {
+        return String.format("T%06d", train);
+    }
+
+    public static String userName(int user) {
+        return String.format("user%07d", user);
+    }
+
+    public static String stationName(int station) {
+        return String.format("Station %04d", station);
+    }
+
+    private static String userId(int user) {
+        return String.format("u%07d", user);
+    }
+
+    private static int trainNo(int train) {
+        return 10000 + train;
+    }
+
+    // Independent stream per (kind, index), so a record does not depend on the ones before it
+    private SplittableRandom randomFor(int kind, int index) {
+        return new SplittableRandom(seed * 0x9E3779B97F4A7C15L + ((long) kind << 32) + index);
+    }
+
+    // A bcrypt salt at the usual cost, built from the seed instead of a SecureRandom
+    private String seededSalt() {
+        byte[] salt = new byte[16];
+        randomFor(3, 0).nextBytes(salt);
+        StringBuilder encoded = new StringBuilder(String.format("$2a$%02d$", UserServiceUtil.BCRYPT_COST));
+        // 16 bytes as 22 characters: every 3 bytes become 4, the last byte becomes 2
+        for (int i = 0; i < salt.length; i += 3) {
+            int b0 = salt[i] & 0xff;
+            int b1 = i + 1 < salt.length ? salt[i + 1] & 0xff : 0;
+            int b2 = i + 2 < salt.length ? salt[i + 2] & 0xff : 0;
+            encoded.append(BCRYPT_BASE64[b0 >> 2]);
+            encoded.append(BCRYPT_BASE64[(b0 & 0x03) << 4 | b1 >> 4]);
+            if (i + 1 < salt.length) {
+                encoded.append(BCRYPT_BASE64[(b1 & 0x0f) << 2 | b2 >> 6]);
+            }
+            if (i + 2 < salt.length) {
+                encoded.append(BCRYPT_BASE64[b2 & 0x3f]);
+            }
+        }
+        return encoded.toString();
+    }
+
+    private static void reportProgress(String what, int done, int total) {
+        if (done % PROGRESS_EVERY == 0 && done < total) {
+            LOGGER.info(() -> "… " + done + " / " + total + " " + what);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.out.println("Usage: DatasetGenerator <output directory>");
+            return;
+        }
+        new DatasetGenerator(Long.getLong("gen.seed", 1))
+                .trains(Integer.getInteger("gen.trains", 10))
+                .stations(Integer.getInteger("gen.stations", 500))
+                .stops(Integer.getInteger("gen.minStops", 3), Integer.getInteger("gen.maxStops", 12))
+                .seats(Integer.getInteger("gen.coaches", 10), Integer.getInteger("gen.berthsPerCoach", 6))
+                .stopSpacing(Integer.getInteger("gen.minStopMinutes", 5), Integer.getInteger("gen.maxStopMinutes", 30))
+                .users(Integer.getInteger("gen.users", 1000))
+                .ticketsPerUser(Integer.getInteger("gen.ticketsPerUser", 1))
+                .ticketDates(LocalDate.parse(System.getProperty("gen.firstTravelDate", LocalDate.now().plusDays(1).toString())),
+                        Integer.getInteger("gen.ticketDays", 30))
+                .write(new File(args[0]));
+    }
+}
@@ -0,0 +1,17 @@
+package util;
+
+import java.io.File;
+
+/**
+ * Where the JSON database lives. Defaults to the copy under src/main/resources; db.dir points the
+ * app (or a benchmark) at another directory with the same layout.
+ */
+public final class LocalDb {
+    public static final String DIR = System.getProperty("db.dir", "src/main/resources/localDb");
+
+    private LocalDb() {}
+
+    public static String path(String name) {
+        return new File(DIR, name).getPath();
+    }
+}
@@ -0,0 +1,86 @@
+package util;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.logging.Formatter;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+/**
+ * One place to set up java.util.logging for the app.
+ *
+ * Messages go to standard output as plain lines, the way the console has always looked. The level
+ * comes from log.level (INFO by default; FINE turns on per-train and per-seat traces). Output is
+ * written by an {@link AsyncLogHandler} unless log.async=false. The interactive console switches
+ * to synchronous output so log lines stay in order with its prompts.
+ */
+public final class Logging {
+    private static final int QUEUE_CAPACITY = Integer.getInteger("log.queueCapacity", 8192);
+
+    private static volatile boolean configured;
+
+    private Logging() {}
+
+    public static Logger getLogger(Class<?> type) {
+        if (!configured) {
+            synchronized (Logging.class) {
+                if (!configured) {
+                    configure(Level.parse(System.getProperty("log.level", "INFO")),
+                            Boolean.parseBoolean(System.getProperty("log.async", "true")));
+                }
+            }
+        }
+        return Logger.getLogger(type.getName());
+    }
+
+    // Replaces the root handlers; may be called again to switch level or mode
+    public static synchronized void configure(Level level, boolean async) {
+        Logger root = Logger.getLogger("");
+        for (Handler handler : root.getHandlers()) {
+            root.removeHandler(handler);
+            handler.close();
+        }
+        Handler console = new StdoutHandler();
+        console.setFormatter(new LineFormatter());
+        Handler handler = async ? new AsyncLogHandler(console, QUEUE_CAPACITY) : console;
+        handler.setLevel(level);
+        root.addHandler(handler);
+        root.setLevel(level);
+        configured = true;
+    }
+
+    // Writes to whatever System.out is at the time of the call
+    private static final class StdoutHandler extends Handler {
+        @Override
+        public void publish(LogRecord record) {
+            if (isLoggable(record)) {
+                System.out.print(getFormatter().format(record));
+            }
+        }
+
+        @Override
+        public void flush() {
+            System.out.flush();
+        }
+
+        @Override
+        public void close() {
+            flush();
+        }
+    }
+
+    private static final class LineFormatter extends Formatter {
+        @Override
+        public String format(LogRecord record) {
+            StringBuilder line = new StringBuilder(formatMessage(record)).append(System.lineSeparator());
+            if (record.getThrown() != null) {
+                StringWriter trace = new StringWriter();
+                record.getThrown().printStackTrace(new PrintWriter(trace));
+                line.append(trace);
+            }
+            return line.toString();
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package util;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * Reads a JSON array file one element at a time instead of building the whole list first.
+ *
+ * The calling thread tokenizes the file and cuts it into chunks of load.chunkSize elements (1024
+ * by default). Binding the chunks to objects, which is most of the work, runs on load.threads
+ * threads (one per CPU by default), and only a few chunks are in flight at once, so peak heap
+ * stays close to the size of the loaded objects rather than the file. Elements still reach the
+ * consumer one by one, in file order, on the calling thread. Progress is logged every 100,000
+ * elements.
+ */
+public final class StreamingJsonLoader {
+    private static final Logger LOGGER = Logging.getLogger(StreamingJsonLoader.class);
+    private static final int THREADS = Integer.getInteger("load.threads", Runtime.getRuntime().availableProcessors());
+    private static final int CHUNK_SIZE = Integer.getInteger("load.chunkSize", 1024);
+    private static final int PROGRESS_EVERY = 100_000;
+
+    private StreamingJsonLoader() {}
+
+    // Returns the number of elements read
+    public static <T> long forEach(ObjectMapper objectMapper, File file, Class<T> type, Consumer<? super T> consumer)
+            throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(file)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new JsonParseException(parser, "Expected a JSON array in " + file.getName());
+            }
+            Progress progress = new Progress(file, parser);
+            if (THREADS <= 1) {
+                while (nextElement(parser)) {
+                    consumer.accept(objectMapper.readValue(parser, type));
+                    progress.advance();
+                }
+                return progress.count;
+            }
+
+            ExecutorService binders = Executors.newFixedThreadPool(THREADS, daemonThreads());
+            try {
+                Deque<Future<List<T>>> inFlight = new ArrayDeque<>();
+                List<TokenBuffer> chunk = new ArrayList<>(CHUNK_SIZE);
+                while (nextElement(parser)) {
+                    TokenBuffer element = new TokenBuffer(parser);
+                    element.copyCurrentStructure(parser);
+                    chunk.add(element);
+                    if (chunk.size() == CHUNK_SIZE) {
+                        inFlight.add(binders.submit(bindTask(objectMapper, type, chunk)));
+                        chunk = new ArrayList<>(CHUNK_SIZE);
+                        // Bound the buffered chunks, or a fast parser would hold the whole file in memory
+                        if (inFlight.size() >= THREADS * 2) {
+                            deliver(inFlight.poll(), consumer, progress);
+                        }
+                    }
+                }
+                if (!chunk.isEmpty()) {
+                    inFlight.add(binders.submit(bindTask(objectMapper, type, chunk)));
+                }
+                while (!inFlight.isEmpty()) {
+                    deliver(inFlight.poll(), consumer, progress);
+                }
+                return progress.count;
+            } finally {
+                binders.shutdownNow();
+            }
+        }
+    }
+
+    private static boolean nextElement(JsonParser parser) throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token == null) {
+            throw new JsonParseException(parser, "Unexpected end of file inside the JSON array");
+        }
+        return token != JsonToken.END_ARRAY;
+    }
+
+    private static <T> Callable<List<T>> bindTask(ObjectMapper objectMapper, Class<T> type, List<TokenBuffer> chunk) {
+        return () -> {
+            List<T> bound = new ArrayList<>(chunk.size());
+            for (TokenBuffer element : chunk) {
+                try (JsonParser elementParser = element.asParser(objectMapper)) {
+                    bound.add(objectMapper.readValue(elementParser, type));
+                }
+            }
+            return bound;
+        };
+    }
+
+    private static <T> void deliver(Future<List<T>> chunk, Consumer<? super T> consumer, Progress progress)
+            throws IOException {
+        List<T> bound;
+        try {
+            bound = chunk.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+        for (T element : bound) {
+            consumer.accept(element);
+            progress.advance();
+        }
+    }
+
+    private static ThreadFactory daemonThreads() {
+        AtomicInteger next = new AtomicInteger();
+        return task -> {
+            Thread thread = new Thread(task, "json-binder-" + next.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static final class Progress {
+        final File file;
+        final JsonParser parser;
+        final long fileLength;
+        long count;
+
+        Progress(File file, JsonParser parser) {
+            this.file = file;
+            this.parser = parser;
+            this.fileLength = file.length();
+        }
+
+        void advance() {
+            count++;
+            if (count % PROGRESS_EVERY == 0) {
+                long done = count;
+                long percent = fileLength > 0 ? parser.getCurrentLocation().getByteOffset() * 100 / fileLength : 0;
+                LOGGER.info(() -> "📥 " + file.getName() + ": " + done + " records read (" + percent + "%)");
+            }
+        }
+    }
+}
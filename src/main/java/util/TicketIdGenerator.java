@@ -0,0 +1,60 @@
+package util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Snowflake-style ticket ids: 41 bits of milliseconds since 2025-01-01, 10 bits of node id and
+ * a 12-bit per-millisecond sequence.
+ *
+ * Ids are unique across threads (a single CAS on the time/sequence state, no lock) and across
+ * nodes as long as every node runs with its own ticket.nodeId. They are zero-padded, so the
+ * ticket id strings sort in creation order.
+ */
+public class TicketIdGenerator {
+    private static final long EPOCH_MILLIS = 1735689600000L; // 2025-01-01T00:00:00Z
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+
+    private static final TicketIdGenerator INSTANCE = new TicketIdGenerator(configuredNodeId());
+
+    private final long nodeId;
+    // Last issued (timestamp << SEQUENCE_BITS | sequence)
+    private final AtomicLong state = new AtomicLong();
+
+    public TicketIdGenerator(long nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Node id must be between 0 and " + MAX_NODE_ID + ": " + nodeId);
+        }
+        this.nodeId = nodeId;
+    }
+
+    public static TicketIdGenerator getInstance() {
+        return INSTANCE;
+    }
+
+    public long nextId() {
+        while (true) {
+            long now = System.currentTimeMillis() - EPOCH_MILLIS;
+            long previous = state.get();
+            // A new millisecond restarts the sequence. Within the same millisecond (or if the
+            // clock stepped back) keep counting; overflowing the sequence simply borrows the next
+            // millisecond, so ids stay unique and increasing.
+            long next = (previous >>> SEQUENCE_BITS) < now ? now << SEQUENCE_BITS : previous + 1;
+            if (state.compareAndSet(previous, next)) {
+                long timestamp = next >>> SEQUENCE_BITS;
+                long sequence = next & ((1L << SEQUENCE_BITS) - 1);
+                return (timestamp << (NODE_BITS + SEQUENCE_BITS)) | (nodeId << SEQUENCE_BITS) | sequence;
+            }
+        }
+    }
+
+    public String nextTicketId() {
+        return String.format("TKT_%019d", nextId());
+    }
+
+    private static long configuredNodeId() {
+        String nodeId = System.getProperty("ticket.nodeId", System.getenv("TICKET_NODE_ID"));
+        return nodeId != null ? Long.parseLong(nodeId.trim()) : 0;
+    }
+}
@@ -2,17 +2,24 @@ package util;
 
 import org.mindrot.jbcrypt.BCrypt;
 
+import java.util.logging.Logger;
+
 public class UserServiceUtil {
+    private static final Logger LOGGER = Logging.getLogger(UserServiceUtil.class);
+
+    // Work factor for new hashes; every +1 doubles the time per hash. Existing hashes keep their own cost.
+    public static final int BCRYPT_COST = Integer.getInteger("bcrypt.cost", 10);
+
     public static String hashPassword(String plainPassword) {
-        return BCrypt.hashpw(plainPassword, BCrypt.gensalt());
+        return BCrypt.hashpw(plainPassword, BCrypt.gensalt(BCRYPT_COST));
     }
 
     public static boolean checkPassword(String plainPassword, String hashedPassword) {
         try {
             return BCrypt.checkpw(plainPassword, hashedPassword);
         } catch (Exception e) {
-            System.out.println("❌ Error checking password: " + e.getMessage());
+            LOGGER.warning(() -> "❌ Error checking password: " + e.getMessage());
             return false;
         }
     }
-}
\ No newline at end of file
+}
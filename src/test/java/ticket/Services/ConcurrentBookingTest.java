@@ -0,0 +1,135 @@
+package ticket.Services;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import ticket.entities.JournalEntry;
+import ticket.entities.SeatMap;
+import ticket.entities.Train;
+import util.DatasetGenerator;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Many users booking the same seat at the same moment through UserBookingService: exactly one
+ * of them may get it, with one ticket, one journal record and one claimed seat to show for it.
+ * Likewise many sessions of one user cancelling the same ticket: exactly one cancellation.
+ */
+class ConcurrentBookingTest {
+    private static final int THREADS = 16;
+
+    @BeforeAll
+    static void installDataset() throws Exception {
+        // The services read these once, so they have to be set before any of them is touched
+        File directory = Files.createTempDirectory("booking-test").toFile();
+        new DatasetGenerator(7).trains(1).stops(4, 4).users(0).write(directory);
+        System.setProperty("db.dir", directory.getPath());
+        System.setProperty("journal.compactionThreshold", String.valueOf(Integer.MAX_VALUE));
+        System.setProperty("login.maxAttemptsPerMinute", String.valueOf(Integer.MAX_VALUE));
+    }
+
+    @Test
+    void onlyOneOfManyConcurrentBookersGetsTheSeat() throws Exception {
+        List<UserBookingService> bookers = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            UserBookingService booker = new UserBookingService();
+            assertTrue(booker.signUp("racer" + i, "password").get(), "sign-up " + i);
+            bookers.add(booker);
+        }
+        Train train = TrainRepository.getInstance().findById(DatasetGenerator.trainId(0));
+        LocalDate travelDate = LocalDate.now().plusDays(1);
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        try {
+            for (UserBookingService booker : bookers) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return booker.bookTrainSeat(train, train.getStations().get(0),
+                            train.getStations().get(train.getStations().size() - 1), travelDate, 0, 0);
+                }));
+            }
+            start.countDown();
+            int winners = 0;
+            for (Future<Boolean> result : results) {
+                if (result.get(30, TimeUnit.SECONDS)) {
+                    winners++;
+                }
+            }
+            assertEquals(1, winners, "successful bookings");
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(1, TicketStore.getInstance().findByTrainAndDate(train.getTrainId(), travelDate.toString()).size(),
+                "tickets for the seat's train and date");
+        long bookings = BookingJournal.getInstance().readAll().stream()
+                .filter(entry -> entry.getType() == JournalEntry.Type.BOOKING)
+                .count();
+        assertEquals(1, bookings, "booking records in the journal");
+        SeatMap seats = SeatInventory.getInstance().seatsFor(train, travelDate);
+        assertEquals(1, seats.bookedSeats(), "claimed seats");
+        assertTrue(seats.isBooked(0, 0));
+    }
+
+    @Test
+    void onlyOneOfManyConcurrentCancelsReleasesTheSeat() throws Exception {
+        UserBookingService owner = new UserBookingService();
+        assertTrue(owner.signUp("canceller", "password").get(), "sign-up");
+        Train train = TrainRepository.getInstance().findById(DatasetGenerator.trainId(0));
+        LocalDate travelDate = LocalDate.now().plusDays(2);
+        assertTrue(owner.bookTrainSeat(train, train.getStations().get(0),
+                train.getStations().get(train.getStations().size() - 1), travelDate, 1, 1), "booking");
+        String ticketId = owner.getLastBookedTickets().get(0).getTicketId();
+
+        // Other sessions of the same user, as another device would have
+        List<UserBookingService> sessions = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            UserBookingService session = new UserBookingService();
+            assertTrue(session.resumeSession(owner.getSessionToken()), "session " + i);
+            sessions.add(session);
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        try {
+            for (UserBookingService session : sessions) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return session.cancelBooking(ticketId);
+                }));
+            }
+            start.countDown();
+            int winners = 0;
+            for (Future<Boolean> result : results) {
+                if (result.get(30, TimeUnit.SECONDS)) {
+                    winners++;
+                }
+            }
+            assertEquals(1, winners, "successful cancellations");
+        } finally {
+            pool.shutdownNow();
+        }
+
+        long cancellations = BookingJournal.getInstance().readAll().stream()
+                .filter(entry -> entry.getType() == JournalEntry.Type.CANCELLATION)
+                .filter(entry -> ticketId.equals(entry.getTicketId()))
+                .count();
+        assertEquals(1, cancellations, "cancellation records in the journal");
+        assertFalse(SeatInventory.getInstance().seatsFor(train, travelDate).isBooked(1, 1));
+    }
+}
@@ -0,0 +1,132 @@
+package ticket.Services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import ticket.entities.Itinerary;
+import ticket.entities.StationRegistry;
+import ticket.entities.Ticket;
+import ticket.entities.Timetable;
+import util.DatasetGenerator;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JourneyPlannerTest {
+    private static final LocalDate TOMORROW = LocalDate.now().plusDays(1);
+    // When the A -> B train gets in; the B -> C trains leave just before and exactly at the transfer time
+    private static final LocalTime AT_TRANSFER = LocalTime.of(9, 0);
+    private static final LocalTime READY = AT_TRANSFER.plusSeconds(JourneyPlanner.MIN_TRANSFER_SECONDS);
+    private static int nextTrainNo = 90000;
+
+    @BeforeAll
+    static void installDataset() throws Exception {
+        File directory = Files.createTempDirectory("planner-test").toFile();
+        new DatasetGenerator(7).trains(20).stations(30).users(0).write(directory);
+
+        // A few hand-made trains on stations of their own, next to the generated ones
+        File trainsFile = new File(directory, "trains.json");
+        ObjectMapper objectMapper = new ObjectMapper();
+        ArrayNode trains = (ArrayNode) objectMapper.readTree(trainsFile);
+        trains.add(train(objectMapper, "P_AB", "Plan A", "08:00:00", "Plan B", AT_TRANSFER.toString()));
+        trains.add(train(objectMapper, "P_BC_TOO_SOON", "Plan B", READY.minusMinutes(1).toString(), "Plan C", "09:40:00"));
+        trains.add(train(objectMapper, "P_BC", "Plan B", READY.toString(), "Plan C", "10:30:00"));
+        trains.add(train(objectMapper, "P_AC", "Plan A", "07:00:00", "Plan C", "12:00:00"));
+        trains.add(train(objectMapper, "N_AB", "Night A", "22:00:00", "Night B", "23:00:00", "Night C", "00:40:00"));
+        trains.add(train(objectMapper, "N_BD", "Night B", "23:30:00", "Night D", "00:30:00"));
+        objectMapper.writeValue(trainsFile, trains);
+
+        System.setProperty("db.dir", directory.getPath());
+    }
+
+    // A one-coach train calling at the given stations and times, in route order
+    private static ObjectNode train(ObjectMapper objectMapper, String trainId, String... stopsAndTimes) {
+        ObjectNode train = objectMapper.createObjectNode();
+        train.put("trainId", trainId);
+        train.put("trainNo", nextTrainNo++);
+        train.putArray("seats").addArray().add(0).add(0);
+        ObjectNode stationTimes = train.putObject("stationTimes");
+        ArrayNode stations = train.putArray("stations");
+        for (int i = 0; i < stopsAndTimes.length; i += 2) {
+            stationTimes.put(stopsAndTimes[i], stopsAndTimes[i + 1]);
+            stations.add(stopsAndTimes[i]);
+        }
+        return train;
+    }
+
+    private static int seconds(String time) {
+        return LocalTime.parse(time).toSecondOfDay();
+    }
+
+    @Test
+    void changesTrainsForTheEarliestArrivalWhenThereIsTimeToTransfer() throws Exception {
+        List<Itinerary> journeys = JourneyPlanner.getInstance().plan("Plan A", "Plan C", TOMORROW);
+
+        assertEquals(2, journeys.size());
+        Itinerary fastest = journeys.get(0);
+        assertEquals(1, fastest.getTransfers());
+        assertEquals("P_AB", fastest.getLegs().get(0).getTrain().getTrainId());
+        // The earlier B -> C train leaves before the minimum transfer time is up
+        assertEquals("P_BC", fastest.getLegs().get(1).getTrain().getTrainId());
+        assertEquals("Plan B", fastest.getLegs().get(1).getSource());
+        assertEquals(seconds("10:30:00"), fastest.getArrival());
+
+        // The direct train arrives later, so it comes second
+        Itinerary direct = journeys.get(1);
+        assertEquals(0, direct.getTransfers());
+        assertEquals("P_AC", direct.getLegs().get(0).getTrain().getTrainId());
+        assertEquals(seconds("12:00:00"), direct.getArrival());
+    }
+
+    @Test
+    void journeysRunPastMidnight() throws Exception {
+        JourneyPlanner planner = JourneyPlanner.getInstance();
+
+        List<Itinerary> direct = planner.plan("Night A", "Night C", TOMORROW);
+        assertEquals(1, direct.size());
+        assertEquals(Timetable.SECONDS_PER_DAY + seconds("00:40:00"), direct.get(0).getArrival());
+
+        List<Itinerary> changing = planner.plan("Night A", "Night D", TOMORROW);
+        assertEquals(1, changing.size());
+        assertEquals(1, changing.get(0).getTransfers());
+        assertEquals("N_BD", changing.get(0).getLegs().get(1).getTrain().getTrainId());
+        assertEquals(Timetable.SECONDS_PER_DAY + seconds("00:30:00"), changing.get(0).getArrival());
+        assertEquals("00:30 (+1d)", Itinerary.formatTime(changing.get(0).getArrival()));
+    }
+
+    @Test
+    void resultsDoNotDependOnTheTravelDate() throws Exception {
+        JourneyPlanner planner = JourneyPlanner.getInstance();
+        assertEquals(planner.plan("Plan A", "Plan C", TOMORROW).toString(),
+                planner.plan("Plan A", "Plan C", TOMORROW.plusDays(3)).toString());
+    }
+
+    @Test
+    void ticketStationsOffEveryRouteAreNotRegistered() throws Exception {
+        JourneyPlanner.getInstance().plan(DatasetGenerator.stationName(0), DatasetGenerator.stationName(1), TOMORROW);
+        int stations = StationRegistry.getInstance().size();
+
+        Ticket ticket = new Ticket();
+        ticket.setSource("  Nowhere Junction ");
+        assertEquals("Nowhere Junction", ticket.getSource());
+        assertEquals(stations, StationRegistry.getInstance().size());
+    }
+
+    @Test
+    void stationRegisteredAfterTheConnectionsWereBuiltHasNoJourneys() throws Exception {
+        JourneyPlanner planner = JourneyPlanner.getInstance();
+        planner.plan(DatasetGenerator.stationName(0), DatasetGenerator.stationName(1), TOMORROW);
+
+        StationRegistry.getInstance().idOf("Opened Later");
+        assertTrue(planner.plan("Opened Later", DatasetGenerator.stationName(0), TOMORROW).isEmpty());
+        assertTrue(planner.plan(DatasetGenerator.stationName(0), "Opened Later", TOMORROW).isEmpty());
+    }
+}
@@ -0,0 +1,51 @@
+package ticket.Services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import ticket.entities.ReservationResult;
+import ticket.entities.SeatMap;
+import ticket.entities.Train;
+import util.DatasetGenerator;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SeatInventoryTest {
+    private static final LocalDate TOMORROW = LocalDate.now().plusDays(1);
+
+    @BeforeAll
+    static void installDataset() throws Exception {
+        File directory = Files.createTempDirectory("seat-inventory-test").toFile();
+        new DatasetGenerator(7).trains(1).users(0).write(directory);
+
+        // Cut the last seat off the last row of the train, leaving a padding cell in its place
+        File trainsFile = new File(directory, "trains.json");
+        ObjectMapper objectMapper = new ObjectMapper();
+        ArrayNode trains = (ArrayNode) objectMapper.readTree(trainsFile);
+        ArrayNode rows = (ArrayNode) trains.get(0).get("seats");
+        ArrayNode lastRow = (ArrayNode) rows.get(rows.size() - 1);
+        lastRow.remove(lastRow.size() - 1);
+        objectMapper.writeValue(trainsFile, trains);
+
+        System.setProperty("db.dir", directory.getPath());
+    }
+
+    @Test
+    void paddingOfARaggedRowCannotBeBookedOnAnyDate() throws Exception {
+        Train train = TrainRepository.getInstance().findById(DatasetGenerator.trainId(0));
+        int lastRow = train.getSeats().getRows() - 1;
+        int lastColumn = train.getSeats().getColumns() - 1;
+
+        for (LocalDate date : new LocalDate[] {TOMORROW, TOMORROW.plusDays(1)}) {
+            SeatMap seats = SeatInventory.getInstance().seatsFor(train, date);
+            assertEquals(ReservationResult.ALREADY_TAKEN, seats.claim(lastRow, lastColumn, seats.fullRoute()));
+            assertEquals(ReservationResult.OUT_OF_RANGE, seats.release(lastRow, lastColumn, seats.fullRoute()));
+            assertEquals(ReservationResult.CLAIMED, seats.claim(lastRow, lastColumn - 1, seats.fullRoute()));
+        }
+    }
+}
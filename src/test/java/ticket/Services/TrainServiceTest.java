@@ -0,0 +1,52 @@
+package ticket.Services;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import ticket.entities.JournalEntry;
+import ticket.entities.Train;
+import util.DatasetGenerator;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TrainServiceTest {
+    private static final LocalDate TOMORROW = LocalDate.now().plusDays(1);
+
+    @BeforeAll
+    static void installDataset() throws Exception {
+        File directory = Files.createTempDirectory("train-service-test").toFile();
+        new DatasetGenerator(7).trains(1).users(0).write(directory);
+        System.setProperty("db.dir", directory.getPath());
+    }
+
+    @Test
+    void seatUpdateSucceedsOnlyWhenItChangesTheSeatOnThatDate() throws Exception {
+        TrainService trainService = new TrainService();
+        String trainId = DatasetGenerator.trainId(0);
+        Train train = trainService.findTrain(trainId);
+        SeatInventory inventory = SeatInventory.getInstance();
+
+        assertTrue(trainService.updateSpecificTrainSeat(trainId, TOMORROW, 0, 0, 1), "claim a free seat");
+        assertTrue(inventory.seatsFor(train, TOMORROW).isBooked(0, 0), "claimed on that date");
+        assertFalse(inventory.seatsFor(train, TOMORROW.plusDays(1)).isBooked(0, 0), "free on the next date");
+        assertFalse(trainService.updateSpecificTrainSeat(trainId, TOMORROW, 0, 0, 1), "claim a taken seat");
+
+        long claims = BookingJournal.getInstance().readAll().stream()
+                .filter(entry -> entry.getType() == JournalEntry.Type.SEAT_CLAIMED)
+                .filter(entry -> TOMORROW.toString().equals(entry.getDateOfTravel()))
+                .count();
+        assertEquals(1, claims, "dated claims in the journal");
+
+        assertTrue(trainService.updateSpecificTrainSeat(trainId, TOMORROW, 0, 0, 0), "release a taken seat");
+        assertFalse(inventory.seatsFor(train, TOMORROW).isBooked(0, 0), "released on that date");
+        assertFalse(trainService.updateSpecificTrainSeat(trainId, TOMORROW, 0, 0, 0), "release a free seat");
+        assertFalse(trainService.updateSpecificTrainSeat(trainId, TOMORROW, 99, 0, 1), "seat off the map");
+        assertFalse(trainService.updateSpecificTrainSeat(trainId, inventory.lastBookableDate().plusDays(1), 0, 0, 1),
+                "date outside the booking window");
+    }
+}